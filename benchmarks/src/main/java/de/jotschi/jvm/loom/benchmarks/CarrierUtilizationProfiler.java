@@ -0,0 +1,71 @@
+package de.jotschi.jvm.loom.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * JMH profiler which reports how busy the carrier threads of the virtual thread scheduler were during an iteration:
+ * the CPU time consumed by all carrier threads divided by the wall clock time and the scheduler parallelism. Carrier
+ * threads are recognized by the name of the {@link java.util.concurrent.ForkJoinPool} workers of the scheduler.
+ * Configurations which do not use virtual threads report {@code 0}.
+ */
+public class CarrierUtilizationProfiler implements InternalProfiler {
+
+	private static final String CARRIER_THREAD_PREFIX = "ForkJoinPool-1-worker-";
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private long startCpuNanos;
+	private long startWallNanos;
+
+	@Override
+	public String getDescription() {
+		return "Carrier thread utilization of the virtual thread scheduler";
+	}
+
+	@Override
+	public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+		startCpuNanos = carrierCpuNanos();
+		startWallNanos = System.nanoTime();
+	}
+
+	@Override
+	public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+			IterationParams iterationParams, IterationResult result) {
+		long wallNanos = System.nanoTime() - startWallNanos;
+		long cpuNanos = carrierCpuNanos() - startCpuNanos;
+		int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+				Runtime.getRuntime().availableProcessors());
+		double utilization = wallNanos <= 0 ? 0 : 100.0 * cpuNanos / ((double) wallNanos * parallelism);
+		List<Result> results = new ArrayList<>(1);
+		results.add(new ScalarResult("carrier.utilization", utilization, "%", AggregationPolicy.AVG));
+		return results;
+	}
+
+	private long carrierCpuNanos() {
+		if (!threads.isThreadCpuTimeSupported()) {
+			return 0;
+		}
+		long cpuNanos = 0;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info != null && info.getThreadName().startsWith(CARRIER_THREAD_PREFIX)) {
+				long time = threads.getThreadCpuTime(info.getThreadId());
+				if (time > 0) {
+					cpuNanos += time;
+				}
+			}
+		}
+		return cpuNanos;
+	}
+}
@@ -0,0 +1,96 @@
+package de.jotschi.jvm.loom.benchmarks;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal blocking HTTP/1.1 client which sends one keep-alive {@code GET} request at a time over a single
+ * connection and reads the complete response. It allocates nothing per request, so the measured allocation rate
+ * belongs to the server.
+ */
+final class HttpLoadClient implements AutoCloseable {
+
+	private static final byte[] REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n"
+			.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+	private final SocketChannel channel;
+	private final ByteBuffer request = ByteBuffer.allocateDirect(REQUEST.length);
+	private final ByteBuffer response = ByteBuffer.allocate(8192);
+
+	HttpLoadClient(InetSocketAddress address) throws IOException {
+		channel = SocketChannel.open(address);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		request.put(REQUEST).flip();
+	}
+
+	/**
+	 * Sends a request and returns the length of the response body.
+	 */
+	int request() throws IOException {
+		request.rewind();
+		while (request.hasRemaining()) {
+			channel.write(request);
+		}
+
+		response.clear();
+		int headerEnd;
+		while ((headerEnd = headerEnd()) < 0) {
+			read();
+		}
+		int contentLength = contentLength(headerEnd);
+		while (response.position() < headerEnd + contentLength) {
+			read();
+		}
+		return contentLength;
+	}
+
+	private void read() throws IOException {
+		if (!response.hasRemaining()) {
+			throw new IOException("response too large");
+		}
+		if (channel.read(response) < 0) {
+			throw new EOFException("connection closed by the server");
+		}
+	}
+
+	// Returns the index after the empty line which terminates the headers, or -1 if it was not received yet.
+	private int headerEnd() {
+		byte[] a = response.array();
+		for (int i = 3; i < response.position(); i++) {
+			if (a[i - 3] == '\r' && a[i - 2] == '\n' && a[i - 1] == '\r' && a[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int contentLength(int headerEnd) throws IOException {
+		byte[] a = response.array();
+		outer: for (int i = 0; i < headerEnd - CONTENT_LENGTH.length; i++) {
+			for (int j = 0; j < CONTENT_LENGTH.length; j++) {
+				if (Character.toLowerCase(a[i + j]) != CONTENT_LENGTH[j]) {
+					continue outer;
+				}
+			}
+			int value = 0;
+			for (int k = i + CONTENT_LENGTH.length; k < headerEnd && a[k] != '\r'; k++) {
+				if (a[k] >= '0' && a[k] <= '9') {
+					value = value * 10 + (a[k] - '0');
+				}
+			}
+			return value;
+		}
+		throw new IOException("response without content-length");
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,123 @@
+package de.jotschi.jvm.loom.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import de.jotschi.jvm.loom.netty.HttpHelloWorldServerHandler;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
+
+/**
+ * Runs the {@link HttpServerCodec} and the {@link HttpHelloWorldServerHandler} of the {@code NettyHelloWorldServerTest}
+ * for every {@link ServerConfig} and drives it in-process over loopback. Each benchmark thread owns one keep-alive
+ * connection and sends one request at a time.
+ * <p>
+ * {@link Mode#Throughput} reports the requests per second, {@link Mode#SampleTime} the p50/p99/p999 latency. Run
+ * {@link #main(String[])} to add the allocation rate ({@link GCProfiler}) and the carrier utilization
+ * ({@link CarrierUtilizationProfiler}), or {@code java -jar target/benchmarks.jar HttpServerBenchmark -prof gc
+ * -prof de.jotschi.jvm.loom.benchmarks.CarrierUtilizationProfiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 1, jvmArgs = { "--enable-preview", "-Xms2g", "-Xmx2g" })
+@Threads(32)
+public class HttpServerBenchmark {
+
+	@Param({ "NIO_PLATFORM", "NIO_VIRTUAL", "LOOM_NIO", "IO_URING_PLATFORM", "IO_URING_VIRTUAL" })
+	public ServerConfig config;
+
+	@Param({ "8" })
+	public int workerThreads;
+
+	private EventLoopGroup bossGroup;
+	private EventLoopGroup workerGroup;
+	private Channel serverChannel;
+	private InetSocketAddress address;
+
+	@Setup(Level.Trial)
+	public void startServer() throws InterruptedException {
+		bossGroup = config.newGroup(1);
+		workerGroup = config.newGroup(workerThreads);
+		ServerBootstrap b = new ServerBootstrap();
+		b.group(bossGroup, workerGroup);
+		b.option(ChannelOption.SO_BACKLOG, 1024);
+		b.channel(config.channelClass());
+		b.childHandler(new ChannelInitializer<SocketChannel>() {
+			@Override
+			protected void initChannel(SocketChannel ch) {
+				ChannelPipeline p = ch.pipeline();
+				p.addLast(new HttpServerCodec());
+				p.addLast(new HttpServerExpectContinueHandler());
+				p.addLast(new HttpHelloWorldServerHandler());
+			}
+		});
+		// Bind to an ephemeral port on loopback, the benchmark never touches the network.
+		serverChannel = b.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+		address = (InetSocketAddress) serverChannel.localAddress();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() throws InterruptedException {
+		serverChannel.close().sync();
+		bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+		workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	@State(Scope.Thread)
+	public static class Connection {
+		HttpLoadClient client;
+
+		@Setup(Level.Trial)
+		public void connect(HttpServerBenchmark server) throws IOException {
+			client = new HttpLoadClient(server.address);
+		}
+
+		@TearDown(Level.Trial)
+		public void disconnect() throws IOException {
+			client.close();
+		}
+	}
+
+	@Benchmark
+	public int request(Connection connection) throws IOException {
+		return connection.client.request();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(HttpServerBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.addProfiler(CarrierUtilizationProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,100 @@
+package de.jotschi.jvm.loom.benchmarks;
+
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.LoomNioEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.aio.AioEventLoopGroup;
+import io.netty.channel.socket.aio.AioServerSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.util.concurrent.CarrierAffineVirtualThreadFactory;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.loom.VirtualThreadFactory;
+
+/**
+ * The event loop configurations of the {@code NettyHelloWorldServerTest} which are compared by the
+ * {@link HttpServerBenchmark}.
+ */
+public enum ServerConfig {
+
+	NIO_PLATFORM {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			return new NioEventLoopGroup(nThreads, new DefaultThreadFactory("netty"));
+		}
+	},
+
+	NIO_VIRTUAL {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			return new NioEventLoopGroup(nThreads, virtualThreadFactory());
+		}
+	},
+
+	LOOM_NIO {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			return new LoomNioEventLoopGroup(nThreads, virtualThreadFactory());
+		}
+	},
+
+	LOOM_NIO_CARRIER_AFFINE {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			return new LoomNioEventLoopGroup(nThreads, new CarrierAffineVirtualThreadFactory("netty"));
+		}
+	},
+
+	IO_URING_PLATFORM {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			IOUring.ensureAvailability();
+			return new IOUringEventLoopGroup(nThreads, new DefaultThreadFactory("netty"));
+		}
+
+		@Override
+		Class<? extends ServerChannel> channelClass() {
+			return IOUringServerSocketChannel.class;
+		}
+	},
+
+	IO_URING_VIRTUAL {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			IOUring.ensureAvailability();
+			return new IOUringEventLoopGroup(nThreads, virtualThreadFactory());
+		}
+
+		@Override
+		Class<? extends ServerChannel> channelClass() {
+			return IOUringServerSocketChannel.class;
+		}
+	},
+
+	AIO_VIRTUAL {
+		@Override
+		EventLoopGroup newGroup(int nThreads) {
+			return new AioEventLoopGroup(nThreads, virtualThreadFactory());
+		}
+
+		@Override
+		Class<? extends ServerChannel> channelClass() {
+			return AioServerSocketChannel.class;
+		}
+	};
+
+	abstract EventLoopGroup newGroup(int nThreads);
+
+	Class<? extends ServerChannel> channelClass() {
+		return NioServerSocketChannel.class;
+	}
+
+	private static ThreadFactory virtualThreadFactory() {
+		return new VirtualThreadFactory();
+	}
+}
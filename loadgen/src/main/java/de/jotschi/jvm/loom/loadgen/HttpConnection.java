@@ -0,0 +1,140 @@
+package de.jotschi.jvm.loom.loadgen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Blocking HTTP/1.1 connection which sends one request at a time and reads the complete response. The connection
+ * is kept alive and transparently re-opened if the server closes it after a response, as the simple NIO example
+ * servers do. Headers terminated by a bare {@code \n} are accepted as well.
+ */
+final class HttpConnection implements AutoCloseable {
+
+	private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+
+	private final InetSocketAddress address;
+	private final ByteBuffer request;
+	private final ByteBuffer response = ByteBuffer.allocate(16384);
+	private SocketChannel channel;
+	private long reconnects;
+
+	HttpConnection(InetSocketAddress address, String path) {
+		this.address = address;
+		// The NIO example servers only answer requests which end with "*/*".
+		byte[] bytes = ("GET " + path + " HTTP/1.1\r\nHost: " + address.getHostString() + "\r\nAccept: */*\r\n\r\n")
+				.getBytes(StandardCharsets.US_ASCII);
+		request = ByteBuffer.allocateDirect(bytes.length);
+		request.put(bytes).flip();
+	}
+
+	void connect() throws IOException {
+		channel = SocketChannel.open(address);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+	}
+
+	/**
+	 * Sends a request and reads the response. Returns the length of the response body.
+	 */
+	int request() throws IOException {
+		if (channel == null || !channel.isOpen()) {
+			reconnect();
+		}
+		try {
+			send();
+			return readResponse();
+		} catch (IOException e) {
+			if (response.position() > 0) {
+				throw e;
+			}
+			// The server closed the idle connection before it answered, send the request over a new one.
+			reconnect();
+			send();
+			return readResponse();
+		}
+	}
+
+	private void send() throws IOException {
+		request.rewind();
+		response.clear();
+		while (request.hasRemaining()) {
+			channel.write(request);
+		}
+	}
+
+	private int readResponse() throws IOException {
+		int headerEnd;
+		while ((headerEnd = headerEnd()) < 0) {
+			read();
+		}
+		int contentLength = contentLength(headerEnd);
+		while (response.position() < headerEnd + contentLength) {
+			read();
+		}
+		return contentLength;
+	}
+
+	/**
+	 * Returns how often the connection was re-opened.
+	 */
+	long reconnects() {
+		return reconnects;
+	}
+
+	private void reconnect() throws IOException {
+		close();
+		connect();
+		reconnects++;
+	}
+
+	private void read() throws IOException {
+		if (!response.hasRemaining()) {
+			throw new IOException("response too large");
+		}
+		if (channel.read(response) < 0) {
+			channel.close();
+			throw new EOFException("connection closed by the server");
+		}
+	}
+
+	// Returns the index after the empty line which terminates the headers, or -1 if it was not received yet.
+	private int headerEnd() {
+		byte[] a = response.array();
+		for (int i = 1; i < response.position(); i++) {
+			if (a[i] == '\n' && (a[i - 1] == '\n' || i >= 2 && a[i - 1] == '\r' && a[i - 2] == '\n')) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int contentLength(int headerEnd) throws IOException {
+		byte[] a = response.array();
+		outer: for (int i = 0; i < headerEnd - CONTENT_LENGTH.length; i++) {
+			for (int j = 0; j < CONTENT_LENGTH.length; j++) {
+				if (Character.toLowerCase(a[i + j]) != CONTENT_LENGTH[j]) {
+					continue outer;
+				}
+			}
+			int value = 0;
+			for (int k = i + CONTENT_LENGTH.length; k < headerEnd && a[k] != '\r' && a[k] != '\n'; k++) {
+				if (a[k] >= '0' && a[k] <= '9') {
+					value = value * 10 + (a[k] - '0');
+				}
+			}
+			return value;
+		}
+		throw new IOException("response without content-length");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+}
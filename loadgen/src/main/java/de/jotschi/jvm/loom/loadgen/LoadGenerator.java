@@ -0,0 +1,252 @@
+package de.jotschi.jvm.loom.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * In-process HTTP/1.1 load generator which opens many keep-alive connections, each served by its own virtual thread
+ * doing blocking {@link java.nio.channels.SocketChannel} I/O.
+ * <p>
+ * In the closed-loop mode ({@code --rate 0}) every connection sends the next request as soon as it received the
+ * previous response. In the open-loop mode the connections together send {@code --rate} requests per second on a
+ * fixed schedule and the latency is measured from the time the request was supposed to be sent. A server which
+ * stalls thus can not hide the requests which queued up behind the stall (coordinated omission). The latencies are
+ * recorded in an HDR histogram.
+ *
+ * <pre>
+ * java --enable-preview -jar target/loadgen.jar --port 8080 --connections 10000 --duration 30 --rate 200000
+ * </pre>
+ */
+public class LoadGenerator {
+
+	private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+	private final Options options;
+	private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_LATENCY, 3);
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+	private volatile boolean recording;
+	private volatile boolean running = true;
+
+	public LoadGenerator(Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * Runs the load and returns the latency histogram of the measurement phase in nanoseconds.
+	 */
+	public Histogram run(PrintStream out) throws InterruptedException {
+		InetSocketAddress address = new InetSocketAddress(options.host, options.port);
+		ThreadFactory threadFactory = Thread.ofVirtual().name("loadgen-", 0).factory();
+		CountDownLatch connected = new CountDownLatch(options.connections);
+		CountDownLatch done = new CountDownLatch(options.connections);
+		// Every connection sends one request per interval, spread evenly over the interval.
+		long intervalNanos = options.rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * options.connections
+				/ (double) options.rate) : 0;
+		long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		for (int i = 0; i < options.connections; i++) {
+			long firstRequest = intervalNanos == 0 ? 0 : start + intervalNanos * i / options.connections;
+			threadFactory.newThread(new Client(address, intervalNanos, firstRequest, connected, done)).start();
+		}
+		if (!connected.await(30, TimeUnit.SECONDS)) {
+			out.println("Warning: only " + (options.connections - connected.getCount()) + " connections opened.");
+		}
+
+		sleep(options.warmupSeconds);
+		recorder.reset();
+		requests.reset();
+		recording = true;
+
+		Histogram total = new Histogram(HIGHEST_TRACKABLE_LATENCY, 3);
+		Histogram interval = null;
+		long lastRequests = 0;
+		for (int second = 1; second <= options.durationSeconds; second++) {
+			sleep(1);
+			interval = recorder.getIntervalHistogram(interval);
+			total.add(interval);
+			long totalRequests = requests.sum();
+			out.printf("%3ds %9d req/s  p50 %8.3fms  p99 %8.3fms  p999 %8.3fms  errors %d%n", second,
+					totalRequests - lastRequests, millis(interval.getValueAtPercentile(50)),
+					millis(interval.getValueAtPercentile(99)), millis(interval.getValueAtPercentile(99.9)),
+					errors.sum());
+			lastRequests = totalRequests;
+		}
+		recording = false;
+		running = false;
+		done.await(10, TimeUnit.SECONDS);
+
+		out.printf("%nconnections %d, mode %s, requests %d, errors %d, reconnects %d%n", options.connections,
+				options.rate > 0 ? "open-loop @ " + options.rate + " req/s" : "closed-loop", total.getTotalCount(),
+				errors.sum(), reconnects.sum());
+		out.printf("throughput %.0f req/s%n", total.getTotalCount() / (double) options.durationSeconds);
+		out.printf("latency p50 %.3fms  p90 %.3fms  p99 %.3fms  p999 %.3fms  max %.3fms%n",
+				millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(90)),
+				millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)),
+				millis(total.getMaxValue()));
+		return total;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+
+	private static void sleep(int seconds) throws InterruptedException {
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+	}
+
+	private final class Client implements Runnable {
+		private final HttpConnection connection;
+		private final long intervalNanos;
+		private final long firstRequest;
+		private final CountDownLatch connected;
+		private final CountDownLatch done;
+
+		Client(InetSocketAddress address, long intervalNanos, long firstRequest, CountDownLatch connected,
+				CountDownLatch done) {
+			this.connection = new HttpConnection(address, options.path);
+			this.intervalNanos = intervalNanos;
+			this.firstRequest = firstRequest;
+			this.connected = connected;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			try {
+				try {
+					connection.connect();
+				} catch (IOException e) {
+					errors.increment();
+					return;
+				} finally {
+					connected.countDown();
+				}
+				long intended = firstRequest;
+				while (running) {
+					long sendTime;
+					if (intervalNanos > 0) {
+						long delay;
+						while ((delay = intended - System.nanoTime()) > 0) {
+							LockSupport.parkNanos(delay);
+						}
+						// Measure from the scheduled time so a stalled server is charged for the whole backlog.
+						sendTime = intended;
+						intended += intervalNanos;
+					} else {
+						sendTime = System.nanoTime();
+					}
+					boolean failed = false;
+					try {
+						connection.request();
+					} catch (IOException e) {
+						errors.increment();
+						failed = true;
+					}
+					if (recording) {
+						// A failed request is recorded as well, skipping it would hide the time the server stalled.
+						long latency = Math.min(System.nanoTime() - sendTime, HIGHEST_TRACKABLE_LATENCY);
+						recorder.recordValue(latency);
+						if (!failed) {
+							requests.increment();
+						}
+					}
+				}
+			} finally {
+				reconnects.add(connection.reconnects());
+				try {
+					connection.close();
+				} catch (IOException ignored) {
+					// ignore
+				}
+				done.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Options of a load run.
+	 */
+	public static final class Options {
+		String host = "127.0.0.1";
+		int port = 8080;
+		String path = "/";
+		int connections = 1000;
+		int durationSeconds = 30;
+		int warmupSeconds = 5;
+		long rate;
+
+		public Options host(String host) {
+			this.host = host;
+			return this;
+		}
+
+		public Options port(int port) {
+			this.port = port;
+			return this;
+		}
+
+		public Options path(String path) {
+			this.path = path;
+			return this;
+		}
+
+		public Options connections(int connections) {
+			this.connections = connections;
+			return this;
+		}
+
+		public Options duration(int seconds) {
+			this.durationSeconds = seconds;
+			return this;
+		}
+
+		public Options warmup(int seconds) {
+			this.warmupSeconds = seconds;
+			return this;
+		}
+
+		/**
+		 * Sets the total requests per second of the open-loop mode, {@code 0} selects the closed-loop mode.
+		 */
+		public Options rate(long requestsPerSecond) {
+			this.rate = requestsPerSecond;
+			return this;
+		}
+
+		static Options parse(String[] args) {
+			Options options = new Options();
+			for (int i = 0; i < args.length; i++) {
+				String value = i + 1 < args.length ? args[i + 1] : null;
+				switch (args[i]) {
+				case "--host" -> options.host(value);
+				case "--port" -> options.port(Integer.parseInt(value));
+				case "--path" -> options.path(value);
+				case "--connections" -> options.connections(Integer.parseInt(value));
+				case "--duration" -> options.duration(Integer.parseInt(value));
+				case "--warmup" -> options.warmup(Integer.parseInt(value));
+				case "--rate" -> options.rate(Long.parseLong(value));
+				default -> throw new IllegalArgumentException("Unknown option: " + args[i]
+						+ " (expected: --host, --port, --path, --connections, --duration, --warmup, --rate)");
+				}
+				i++;
+			}
+			return options;
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		new LoadGenerator(Options.parse(args)).run(System.out);
+	}
+}
@@ -166,6 +166,15 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
         return eventLoop;
     }
 
+    /**
+     * LOOM PATCH: Hands a registered channel over to another {@link EventLoop} without deregistering it. Must be
+     * called from the current {@link EventLoop} after the transport released its resources there.
+     */
+    protected final void migrateEventLoop(EventLoop eventLoop) {
+        assert registered && this.eventLoop.inEventLoop();
+        this.eventLoop = ObjectUtil.checkNotNull(eventLoop, "eventLoop");
+    }
+
     @Override
     public SocketAddress localAddress() {
         SocketAddress localAddress = this.localAddress;
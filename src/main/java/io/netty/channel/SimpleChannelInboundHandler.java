@@ -15,10 +15,18 @@
  */
 package io.netty.channel;
 
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.concurrent.EventExecutor;
-import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.TypeParameterMatcher;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 /**
  * {@link ChannelInboundHandlerAdapter} which allows to explicit only handle a
@@ -44,11 +52,35 @@ import io.netty.util.internal.TypeParameterMatcher;
  * {@link ReferenceCountUtil#release(Object)}. In this case you may need to use
  * {@link ReferenceCountUtil#retain(Object)} if you pass the object to the next
  * handler in the {@link ChannelPipeline}.
+ *
+ * <h3>Offloading</h3>
+ *
+ * When constructed with an offload {@link Executor}, usually one which runs
+ * each task on a new virtual thread, {@link #channelRead0(ChannelHandlerContext, Object)}
+ * does not run on the event loop. The received messages are put into a per
+ * channel inbox which is drained by one task of the executor at a time, so
+ * blocking business logic does not stall the event loop while the messages of a
+ * channel are still handled in order. Messages which are not accepted are passed
+ * on through the inbox as well to keep their order. The inbox takes over the
+ * ownership of the messages and releases them as described above once they were
+ * handled. Writes issued by {@link #channelRead0(ChannelHandlerContext, Object)}
+ * are flushed whenever the inbox runs empty. Once the inbox holds
+ * {@code maxInboxSize} messages {@code autoRead} is disabled until it was
+ * drained to the half. Exceptions are passed to
+ * {@link #exceptionCaught(ChannelHandlerContext, Throwable)} on the event
+ * loop, like all other events. An offloading handler holds per channel state and thus can not be
+ * {@link ChannelHandler.Sharable}.
  */
 public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandlerAdapter {
 
+	private static final InternalLogger logger = InternalLoggerFactory.getInstance(SimpleChannelInboundHandler.class);
+
 	private final TypeParameterMatcher matcher;
 	private final boolean autoRelease;
+	private final Executor offloadExecutor;
+	private final int maxInboxSize;
+	// Only accessed by the event loop.
+	private Inbox inbox;
 
 	/**
 	 * see {@link #SimpleChannelInboundHandler(boolean)} with {@code true} as
@@ -67,8 +99,38 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 	 *                    {@link ReferenceCountUtil#release(Object)}.
 	 */
 	protected SimpleChannelInboundHandler(boolean autoRelease) {
+		this(autoRelease, null, 0);
+	}
+
+	/**
+	 * see {@link #SimpleChannelInboundHandler(boolean, Executor, int)} with
+	 * {@code true} as boolean parameter.
+	 */
+	protected SimpleChannelInboundHandler(Executor offloadExecutor, int maxInboxSize) {
+		this(true, offloadExecutor, maxInboxSize);
+	}
+
+	/**
+	 * Create a new instance which will try to detect the types to match out of the
+	 * type parameter of the class and which offloads the handling of the messages.
+	 *
+	 * @param autoRelease     {@code true} if handled messages should be released
+	 *                        automatically by passing them to
+	 *                        {@link ReferenceCountUtil#release(Object)}.
+	 * @param offloadExecutor the {@link Executor} which drains the inbox, or
+	 *                        {@code null} if the messages should be handled on the
+	 *                        event loop.
+	 * @param maxInboxSize    the number of buffered messages at which
+	 *                        {@code autoRead} is disabled.
+	 */
+	protected SimpleChannelInboundHandler(boolean autoRelease, Executor offloadExecutor, int maxInboxSize) {
 		matcher = TypeParameterMatcher.find(this, SimpleChannelInboundHandler.class, "I");
 		this.autoRelease = autoRelease;
+		this.offloadExecutor = offloadExecutor;
+		this.maxInboxSize = offloadExecutor == null ? 0 : ObjectUtil.checkPositive(maxInboxSize, "maxInboxSize");
+		if (offloadExecutor != null && isSharable()) {
+			throw new IllegalStateException("an offloading handler can not be @Sharable: " + getClass().getName());
+		}
 	}
 
 	/**
@@ -90,6 +152,8 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 	protected SimpleChannelInboundHandler(Class<? extends I> inboundMessageType, boolean autoRelease) {
 		matcher = TypeParameterMatcher.get(inboundMessageType);
 		this.autoRelease = autoRelease;
+		this.offloadExecutor = null;
+		this.maxInboxSize = 0;
 	}
 
 	/**
@@ -103,6 +167,13 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (offloadExecutor != null) {
+			if (inbox == null) {
+				inbox = new Inbox(ctx);
+			}
+			inbox.add(msg);
+			return;
+		}
 		boolean release = true;
 		try {
 			if (acceptInboundMessage(msg)) {
@@ -113,8 +184,6 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 				release = false;
 				ctx.fireChannelRead(msg);
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
 		} finally {
 			if (autoRelease && release) {
 				ReferenceCountUtil.release(msg);
@@ -122,6 +191,14 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 		}
 	}
 
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		if (inbox != null) {
+			inbox.close();
+		}
+		super.handlerRemoved(ctx);
+	}
+
 	/**
 	 * Is called for each message of type {@link I}.
 	 *
@@ -131,4 +208,144 @@ public abstract class SimpleChannelInboundHandler<I> extends ChannelInboundHandl
 	 * @throws Exception is thrown if an error occurred
 	 */
 	protected abstract void channelRead0(ChannelHandlerContext ctx, I msg) throws Exception;
+
+	/**
+	 * The per channel inbox of an offloading handler. The event loop is the only
+	 * producer and at most one task of the offload {@link Executor} drains it.
+	 */
+	private final class Inbox implements Runnable {
+		private final ChannelHandlerContext ctx;
+		private final Queue<Object> messages = PlatformDependent.newMpscQueue();
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private final AtomicBoolean resumeScheduled = new AtomicBoolean();
+		private final Runnable resumeTask = new Runnable() {
+			@Override
+			public void run() {
+				resumeScheduled.set(false);
+				if (autoReadSuspended) {
+					autoReadSuspended = false;
+					ctx.channel().config().setAutoRead(true);
+				}
+			}
+		};
+		// Only written by the event loop.
+		private volatile boolean autoReadSuspended;
+		private volatile boolean closed;
+
+		Inbox(ChannelHandlerContext ctx) {
+			this.ctx = ctx;
+		}
+
+		void add(Object msg) {
+			messages.offer(msg);
+			if (size.incrementAndGet() >= maxInboxSize && !autoReadSuspended) {
+				ChannelConfig config = ctx.channel().config();
+				if (config.isAutoRead()) {
+					autoReadSuspended = true;
+					config.setAutoRead(false);
+				}
+			}
+			scheduleDrain();
+		}
+
+		void close() {
+			closed = true;
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if (!draining.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				offloadExecutor.execute(this);
+			} catch (Throwable cause) {
+				draining.set(false);
+				logger.warn("Failed to offload the inbox of {}, releasing the buffered messages.", ctx.channel(),
+						cause);
+				releaseAll();
+				ctx.fireExceptionCaught(cause);
+			}
+		}
+
+		@Override
+		public void run() {
+			for (;;) {
+				boolean handled = false;
+				Object msg;
+				while ((msg = messages.poll()) != null) {
+					int remaining = size.decrementAndGet();
+					if (closed) {
+						ReferenceCountUtil.release(msg);
+						continue;
+					}
+					handle(msg);
+					handled = true;
+					if (autoReadSuspended && remaining <= maxInboxSize >>> 1
+							&& resumeScheduled.compareAndSet(false, true)) {
+						try {
+							ctx.executor().execute(resumeTask);
+						} catch (RejectedExecutionException ignored) {
+							// The event loop is shutting down.
+						}
+					}
+				}
+				if (handled && !closed) {
+					ctx.flush();
+				}
+				draining.set(false);
+				if (messages.isEmpty() || !draining.compareAndSet(false, true)) {
+					return;
+				}
+			}
+		}
+
+		private void handle(Object msg) {
+			boolean release = true;
+			try {
+				if (acceptInboundMessage(msg)) {
+					@SuppressWarnings("unchecked")
+					I imsg = (I) msg;
+					channelRead0(ctx, imsg);
+				} else {
+					release = false;
+					ctx.fireChannelRead(msg);
+				}
+			} catch (Throwable cause) {
+				exceptionCaughtLater(cause);
+			} finally {
+				if (autoRelease && release) {
+					ReferenceCountUtil.release(msg);
+				}
+			}
+		}
+
+		private void exceptionCaughtLater(final Throwable cause) {
+			try {
+				ctx.executor().execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							exceptionCaught(ctx, cause);
+						} catch (Throwable t) {
+							logger.warn("An exception was thrown by exceptionCaught() while handling an offloaded "
+									+ "message.", t);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				logger.warn("Failed to pass an exception of an offloaded message to the event loop of {}.",
+						ctx.channel(), cause);
+			}
+		}
+
+		private void releaseAll() {
+			Object msg;
+			while ((msg = messages.poll()) != null) {
+				size.decrementAndGet();
+				ReferenceCountUtil.release(msg);
+			}
+		}
+	}
 }
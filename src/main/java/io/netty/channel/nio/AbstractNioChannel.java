@@ -27,6 +27,8 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.ConnectTimeoutException;
 import io.netty.channel.EventLoop;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
 import io.netty.util.concurrent.Future;
@@ -40,6 +42,7 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -47,12 +50,21 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractNioChannel extends AbstractChannel {
 
+    // Bounds how often a migration barrier lets newer tasks run first before the migration is given up.
+    private static final int MAX_MIGRATION_BARRIER_ROUNDS = 64;
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(AbstractNioChannel.class);
 
     private final SelectableChannel ch;
     protected final int readInterestOp;
     volatile SelectionKey selectionKey;
+    // LOOM PATCH: Index in the slot table of a LoomNioEventLoop, only accessed by the event loop.
+    int slot = -1;
+    // LOOM PATCH: Number of times the SelectionKey was selected and the value seen by the last rebalancing, only
+    // accessed by the event loop.
+    long readyEvents;
+    long sampledReadyEvents;
     boolean readPending;
     private final Runnable clearReadPendingRunnable = new Runnable() {
         @Override
@@ -219,10 +231,10 @@ public abstract class AbstractNioChannel extends AbstractChannel {
             if (!key.isValid()) {
                 return;
             }
-            int interestOps = key.interestOps();
-            if ((interestOps & readInterestOp) != 0) {
+            if ((key.interestOps() & readInterestOp) != 0) {
                 // only remove readInterestOp if needed
-                key.interestOps(interestOps & ~readInterestOp);
+                // LOOM PATCH: Atomic update, a NioPoller may clear the interest set concurrently.
+                key.interestOpsAnd(~readInterestOp);
             }
         }
 
@@ -250,6 +262,7 @@ public abstract class AbstractNioChannel extends AbstractChannel {
                 } else {
                     connectPromise = promise;
                     requestedRemoteAddress = remoteAddress;
+                    interestOpsAdded();
 
                     // Schedule connect timeout.
                     int connectTimeoutMillis = config().getConnectTimeoutMillis();
@@ -352,6 +365,10 @@ public abstract class AbstractNioChannel extends AbstractChannel {
             // and thus there's no need to call it now.
             if (!isFlushPending()) {
                 super.flush0();
+                // LOOM PATCH: An incomplete write added OP_WRITE
+                if (isFlushPending()) {
+                    interestOpsAdded();
+                }
             }
         }
 
@@ -359,6 +376,10 @@ public abstract class AbstractNioChannel extends AbstractChannel {
         public final void forceFlush() {
             // directly call super.flush0() to force a flush now
             super.flush0();
+            // LOOM PATCH: An incomplete write added OP_WRITE
+            if (isFlushPending()) {
+                interestOpsAdded();
+            }
         }
 
         private boolean isFlushPending() {
@@ -374,10 +395,19 @@ public abstract class AbstractNioChannel extends AbstractChannel {
 
     @Override
     protected void doRegister() throws Exception {
+        // LOOM PATCH: Channels of a thread-per-channel loop use blocking I/O and are not registered to a Selector
+        if (eventLoop() instanceof LoomThreadPerChannelEventLoop) {
+            selectionKey = ((LoomThreadPerChannelEventLoop) eventLoop()).attach(this);
+            return;
+        }
         boolean selected = false;
         for (;;) {
             try {
                 selectionKey = javaChannel().register(eventLoop().unwrappedSelector(), 0, this);
+                // LOOM PATCH: Track the channel in the slot table of the event loop
+                if (eventLoop() instanceof LoomNioEventLoop) {
+                    ((LoomNioEventLoop) eventLoop()).addChannel(this);
+                }
                 return;
             } catch (CancelledKeyException e) {
                 if (!selected) {
@@ -397,6 +427,179 @@ public abstract class AbstractNioChannel extends AbstractChannel {
     @Override
     protected void doDeregister() throws Exception {
         eventLoop().cancel(selectionKey());
+        if (eventLoop() instanceof LoomNioEventLoop) {
+            ((LoomNioEventLoop) eventLoop()).removeChannel(this);
+        }
+    }
+
+    /**
+     * LOOM PATCH: Moves this channel to the given {@link LoomNioEventLoop} without deregistering it, so neither
+     * {@code channelUnregistered} nor {@code channelRegistered} are fired. The pipeline, the
+     * {@link io.netty.channel.ChannelOutboundBuffer} and {@link #isReadPending()} are kept and the interest set of the
+     * {@link SelectionKey} is carried over, so readiness which was not processed yet is reported by the new
+     * {@link java.nio.channels.Selector}. Must be called from the current event loop.
+     * <p>
+     * The channel stays on the current event loop until a barrier task queued by this method ran there and found the
+     * task queue of the current event loop drained. Only then {@link #eventLoop()} is switched, and the task which
+     * registers the channel with the new event loop is queued there before the switch, so it runs before any task
+     * submitted afterwards. If the task queue is not drained after {@value #MAX_MIGRATION_BARRIER_ROUNDS} attempts
+     * the migration fails and the channel stays where it is. A thread which read {@link #eventLoop()} right before the
+     * switch but queued its task after the barrier ran can still see that task run after a task it submitted later,
+     * as the pipeline hands it over to the new event loop.
+     * <p>
+     * Timers which handlers scheduled on the current event loop can not be moved, so the migration fails with an
+     * {@link IllegalStateException} while the pipeline contains an {@link IdleStateHandler} or a
+     * {@link WriteTimeoutHandler}. The same applies while a connect is pending.
+     */
+    final void migrate(final LoomNioEventLoop target, final ChannelPromise promise) {
+        final INioEventLoop source = eventLoop();
+        assert source.inEventLoop();
+        if (!promise.setUncancellable()) {
+            return;
+        }
+        if (!isOpen()) {
+            promise.setFailure(new ClosedChannelException());
+            return;
+        }
+        if (!isRegistered() || source == target) {
+            promise.setSuccess();
+            return;
+        }
+        if (target.isShuttingDown()) {
+            promise.setFailure(new IllegalStateException("target event loop is shutting down"));
+            return;
+        }
+        if (!checkMigratable(promise)) {
+            return;
+        }
+
+        try {
+            source.execute(new Runnable() {
+                private int rounds;
+
+                @Override
+                public void run() {
+                    if (source instanceof LoomNioEventLoop && ((LoomNioEventLoop) source).pendingTasks() > 0) {
+                        // Tasks queued behind the barrier must run on this event loop, as the pipeline would hand
+                        // them over to the new event loop behind tasks which were submitted later.
+                        if (++rounds == MAX_MIGRATION_BARRIER_ROUNDS) {
+                            promise.tryFailure(new IllegalStateException(
+                                    "event loop did not drain its task queue, not migrating"));
+                            return;
+                        }
+                        try {
+                            source.execute(this);
+                        } catch (RejectedExecutionException e) {
+                            promise.tryFailure(e);
+                        }
+                        return;
+                    }
+                    switchEventLoop(source, target, promise);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The current event loop is shutting down and does not run any queued task anymore.
+            promise.setFailure(e);
+        }
+    }
+
+    private boolean checkMigratable(ChannelPromise promise) {
+        if (connectPromise != null) {
+            // The connect timeout is scheduled on the current event loop.
+            promise.tryFailure(new ConnectionPendingException());
+            return false;
+        }
+        if (hasHandlerTimers()) {
+            promise.tryFailure(new IllegalStateException(
+                    "pipeline contains handlers with timers on the current event loop"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this channel can not be migrated, because it is connecting or a handler scheduled
+     * timers on the current event loop.
+     */
+    final boolean isPinnedToEventLoop() {
+        return connectPromise != null || hasHandlerTimers();
+    }
+
+    private boolean hasHandlerTimers() {
+        return pipeline().get(IdleStateHandler.class) != null || pipeline().get(WriteTimeoutHandler.class) != null;
+    }
+
+    private void switchEventLoop(INioEventLoop source, final LoomNioEventLoop target, final ChannelPromise promise) {
+        if (!isOpen()) {
+            promise.tryFailure(new ClosedChannelException());
+            return;
+        }
+        if (!isRegistered() || eventLoop() != source) {
+            promise.tryFailure(new IllegalStateException("channel was deregistered or moved during the migration"));
+            return;
+        }
+        if (!checkMigratable(promise)) {
+            return;
+        }
+
+        final int interestOps;
+        try {
+            interestOps = selectionKey().interestOps();
+        } catch (CancelledKeyException e) {
+            promise.tryFailure(e);
+            return;
+        }
+        source.cancel(selectionKey());
+        if (source instanceof LoomNioEventLoop) {
+            ((LoomNioEventLoop) source).removeChannel(this);
+        }
+        readyEvents = 0;
+        sampledReadyEvents = 0;
+
+        try {
+            // Queue the registration before the switch, so it runs before all tasks submitted to the new event loop.
+            target.execute(new Runnable() {
+                @Override
+                public void run() {
+                    completeMigration(target, interestOps, promise);
+                }
+            });
+        } catch (Throwable t) {
+            // Nothing was handed over, stay on the current event loop.
+            try {
+                doRegister();
+                selectionKey().interestOps(interestOps);
+            } catch (Throwable cause) {
+                logger.warn("Force-closing a channel which could not be registered again after a failed migration: {}",
+                        this, cause);
+                unsafe().closeForcibly();
+            }
+            promise.tryFailure(t);
+            return;
+        }
+        migrateEventLoop(target);
+    }
+
+    private void completeMigration(LoomNioEventLoop target, int interestOps, ChannelPromise promise) {
+        while (eventLoop() != target) {
+            // The current event loop queued this task right before it switched the event loop of the channel.
+            Thread.yield();
+        }
+        if (!isOpen()) {
+            promise.tryFailure(new ClosedChannelException());
+            return;
+        }
+        try {
+            doRegister();
+            selectionKey().interestOps(interestOps);
+        } catch (Throwable t) {
+            unsafe().closeForcibly();
+            promise.tryFailure(t);
+            return;
+        }
+        // Flush what was written while the channel was not registered with any Selector.
+        ((AbstractNioUnsafe) unsafe()).flush0();
+        promise.trySuccess();
     }
 
     @Override
@@ -409,9 +612,20 @@ public abstract class AbstractNioChannel extends AbstractChannel {
 
         readPending = true;
 
-        final int interestOps = selectionKey.interestOps();
-        if ((interestOps & readInterestOp) == 0) {
-            selectionKey.interestOps(interestOps | readInterestOp);
+        if ((selectionKey.interestOps() & readInterestOp) == 0) {
+            // LOOM PATCH: Atomic update, a NioPoller may clear the interest set concurrently.
+            selectionKey.interestOpsOr(readInterestOp);
+            interestOpsAdded();
+        }
+    }
+
+    /**
+     * LOOM PATCH: The shared poller of a {@link LoomPolledNioEventLoop} only sees added interest ops after a wakeup.
+     */
+    private void interestOpsAdded() {
+        EventLoop loop = eventLoop();
+        if (loop instanceof LoomPolledNioEventLoop) {
+            ((LoomPolledNioEventLoop) loop).interestOpsAdded();
         }
     }
 
@@ -161,15 +161,16 @@ public abstract class AbstractNioMessageChannel extends AbstractNioChannel {
                 }
             }
         }
+        // LOOM PATCH: Atomic updates, a NioPoller may clear the interest set concurrently.
         if (in.isEmpty()) {
             // Wrote all messages.
             if ((interestOps & SelectionKey.OP_WRITE) != 0) {
-                key.interestOps(interestOps & ~SelectionKey.OP_WRITE);
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
             }
         } else {
             // Did not write all messages.
             if ((interestOps & SelectionKey.OP_WRITE) == 0) {
-                key.interestOps(interestOps | SelectionKey.OP_WRITE);
+                key.interestOpsOr(SelectionKey.OP_WRITE);
             }
         }
     }
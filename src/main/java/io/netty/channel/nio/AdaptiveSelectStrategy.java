@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import io.netty.channel.SelectStrategy;
+import io.netty.util.IntSupplier;
+
+/**
+ * {@link SelectStrategy} which keeps polling via {@link java.nio.channels.Selector#selectNow()} after a busy
+ * iteration instead of blocking right away. Between two polls the thread yields, which is cheap for a virtual
+ * thread. Only after {@code spinBudget} polls in a row found neither ready keys nor tasks the strategy falls back to
+ * {@link SelectStrategy#SELECT}, so the event loop blocks in {@code select(deadline)}. Under sustained load this
+ * saves the select syscall and the park / unpark of the event loop thread for each request.
+ * <p>
+ * An instance must only be used by a single {@link LoomNioEventLoop}. The counters may be read from any thread and
+ * are a best effort.
+ */
+public final class AdaptiveSelectStrategy implements SelectStrategy {
+
+    private final int spinBudget;
+    private int remainingSpins;
+
+    // Only written by the event loop.
+    private volatile long spins;
+    private volatile long selects;
+
+    AdaptiveSelectStrategy(int spinBudget) {
+        this.spinBudget = spinBudget;
+    }
+
+    @Override
+    public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+        int selected = selectSupplier.get();
+        if (hasTasks || selected > 0) {
+            // Busy iteration, refill the budget.
+            remainingSpins = spinBudget;
+            return selected;
+        }
+        if (remainingSpins > 0) {
+            remainingSpins--;
+            spins++;
+            Thread.yield();
+            // Re-evaluate the task queue and the selector in the next iteration.
+            return SelectStrategy.CONTINUE;
+        }
+        selects++;
+        return SelectStrategy.SELECT;
+    }
+
+    /**
+     * Returns the number of empty polls which were done instead of a blocking select.
+     */
+    public long spins() {
+        return spins;
+    }
+
+    /**
+     * Returns the number of times the spin budget was exhausted and the event loop fell back to a blocking select.
+     */
+    public long selects() {
+        return selects;
+    }
+}
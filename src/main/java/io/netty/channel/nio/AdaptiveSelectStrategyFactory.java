@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SelectStrategyFactory;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+
+/**
+ * Factory which creates a new {@link AdaptiveSelectStrategy} for each event loop.
+ */
+public final class AdaptiveSelectStrategyFactory implements SelectStrategyFactory {
+
+    private static final int DEFAULT_SPIN_BUDGET =
+            Math.max(0, SystemPropertyUtil.getInt("io.netty.loom.selectSpinBudget", 64));
+
+    public static final SelectStrategyFactory INSTANCE = new AdaptiveSelectStrategyFactory(DEFAULT_SPIN_BUDGET);
+
+    private final int spinBudget;
+
+    /**
+     * @param spinBudget the number of consecutive empty polls before the event loop blocks in a select.
+     */
+    public AdaptiveSelectStrategyFactory(int spinBudget) {
+        this.spinBudget = ObjectUtil.checkPositiveOrZero(spinBudget, "spinBudget");
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        return new AdaptiveSelectStrategy(spinBudget);
+    }
+}
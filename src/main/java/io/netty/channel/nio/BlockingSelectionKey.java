@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link SelectionKey} which is not backed by any {@link Selector}. It is used by the
+ * {@link LoomThreadPerChannelEventLoop} where the underlying {@link SelectableChannel} operates in blocking mode.
+ * The interest set is only used to signal the reader thread of the channel that a read was requested.
+ */
+final class BlockingSelectionKey extends SelectionKey {
+
+    private static final AtomicIntegerFieldUpdater<BlockingSelectionKey> INTEREST_OPS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(BlockingSelectionKey.class, "interestOps");
+
+    private final SelectableChannel channel;
+    private volatile int interestOps;
+    private volatile boolean valid = true;
+    private volatile Thread waiter;
+
+    BlockingSelectionKey(SelectableChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public SelectableChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Always returns {@code null} as there is no {@link Selector} involved.
+     */
+    @Override
+    public Selector selector() {
+        return null;
+    }
+
+    @Override
+    public boolean isValid() {
+        return valid;
+    }
+
+    @Override
+    public void cancel() {
+        valid = false;
+        LockSupport.unpark(waiter);
+    }
+
+    @Override
+    public int interestOps() {
+        ensureValid();
+        return interestOps;
+    }
+
+    @Override
+    public SelectionKey interestOps(int ops) {
+        ensureValid();
+        interestOps = ops;
+        if ((ops & OP_READ) != 0) {
+            LockSupport.unpark(waiter);
+        }
+        return this;
+    }
+
+    @Override
+    public int readyOps() {
+        ensureValid();
+        // Blocking channels are always considered ready, the calling thread will park within the I/O operation.
+        return interestOps;
+    }
+
+    /**
+     * Parks the calling thread until {@link SelectionKey#OP_READ} was added to the interest set or the key was
+     * cancelled.
+     *
+     * @return {@code true} if a read was requested, {@code false} if the key was cancelled.
+     */
+    boolean awaitReadInterest() {
+        waiter = Thread.currentThread();
+        try {
+            while (valid && (interestOps & OP_READ) == 0) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waiter = null;
+        }
+        return valid;
+    }
+
+    /**
+     * Removes {@link SelectionKey#OP_READ} from the interest set so a new read must be requested via
+     * {@link #interestOps(int)} before {@link #awaitReadInterest()} returns again.
+     */
+    void clearReadInterest() {
+        for (;;) {
+            int ops = interestOps;
+            if ((ops & OP_READ) == 0 || INTEREST_OPS_UPDATER.compareAndSet(this, ops, ops & ~OP_READ)) {
+                return;
+            }
+        }
+    }
+
+    private void ensureValid() {
+        if (!valid) {
+            throw new CancelledKeyException();
+        }
+    }
+}
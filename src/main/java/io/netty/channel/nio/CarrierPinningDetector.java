@@ -0,0 +1,382 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Detects {@link LoomNioEventLoop}s whose virtual thread holds on to its carrier thread while blocking.
+ * <p>
+ * A virtual thread which blocks in {@link java.nio.channels.Selector#select()}, inside a {@code synchronized} region
+ * or in {@link Object#wait()} can not unmount and pins its carrier. Every event loop of a group therefore may pin one
+ * carrier and once the scheduler runs out of carriers no other virtual thread is started anymore (see
+ * {@code LoomThreadTest#testSelectorThreads}). The detector guards against this in two ways:
+ * <ul>
+ *     <li>When the thread of an event loop starts and is virtual, the number of started virtual event loops of all
+ *     groups is compared to {@link #carrierCapacity()}. Event loops on platform threads have no carrier to pin and
+ *     are not counted. Exceeding it logs a warning or, with {@link Policy#REJECT}, shuts the event loop down before
+ *     it selects for the first time.</li>
+ *     <li>Optionally the threads of the event loops are sampled in a fixed interval. A sample counts as pinned if
+ *     the stack shows a blocking select or {@link Object#wait()}, or if the thread is blocked on a monitor. The
+ *     pinned time is estimated from the number of pinned samples and the most recent pinned stacks are kept.
+ *     Sampling takes the stack of every event loop thread, so it is off by default.</li>
+ * </ul>
+ * The defaults are taken from {@code -Dio.netty.loom.pinning.policy} (default {@code warn}) and
+ * {@code -Dio.netty.loom.pinning.sampleIntervalMillis} (default {@code 0}, which disables sampling). A group can
+ * override them with a {@link Config}.
+ */
+public final class CarrierPinningDetector {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CarrierPinningDetector.class);
+
+    /**
+     * What to do when more event loops are created than carriers can be pinned.
+     */
+    public enum Policy {
+        /**
+         * Do not check the number of event loops.
+         */
+        IGNORE,
+        /**
+         * Log a warning.
+         */
+        WARN,
+        /**
+         * Shut the event loop down when its thread starts. Channels which were registered with it are closed.
+         */
+        REJECT
+    }
+
+    private static final Policy DEFAULT_POLICY;
+    private static final long DEFAULT_SAMPLE_INTERVAL_MILLIS;
+    private static final int STACK_SAMPLES = 8;
+
+    // Started event loops of all groups which run on a virtual thread and thus may currently pin a carrier.
+    private static final AtomicInteger pinnableLoops = new AtomicInteger();
+
+    static {
+        Policy policy;
+        String value = SystemPropertyUtil.get("io.netty.loom.pinning.policy", Policy.WARN.name());
+        try {
+            policy = Policy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            policy = Policy.WARN;
+        }
+        DEFAULT_POLICY = policy;
+        DEFAULT_SAMPLE_INTERVAL_MILLIS = Math.max(0,
+                SystemPropertyUtil.getLong("io.netty.loom.pinning.sampleIntervalMillis", 0));
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.loom.pinning.policy: {}", DEFAULT_POLICY);
+            logger.debug("-Dio.netty.loom.pinning.sampleIntervalMillis: {}", DEFAULT_SAMPLE_INTERVAL_MILLIS);
+            logger.debug("carrier capacity: {}", carrierCapacity());
+        }
+    }
+
+    private final LoomNioEventLoopGroup group;
+    private final Policy policy;
+    private final long sampleIntervalMillis;
+    private final List<PinningStats> stats = new CopyOnWriteArrayList<PinningStats>();
+    private boolean warned;
+    private Future<?> sampleFuture;
+
+    CarrierPinningDetector(LoomNioEventLoopGroup group, Config config) {
+        this.group = group;
+        policy = config.policy;
+        sampleIntervalMillis = config.sampleIntervalMillis;
+    }
+
+    /**
+     * Returns the number of carrier threads the virtual thread scheduler may use. This is the upper bound for the
+     * number of event loops which may pin a carrier at the same time, derived from the
+     * {@code jdk.virtualThreadScheduler.parallelism} and {@code jdk.virtualThreadScheduler.maxPoolSize} system
+     * properties in the same way the JDK derives it.
+     */
+    public static int carrierCapacity() {
+        int parallelism = SystemPropertyUtil.getInt("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        return Math.max(1, SystemPropertyUtil.getInt("jdk.virtualThreadScheduler.maxPoolSize",
+                Math.max(parallelism, 256)));
+    }
+
+    /**
+     * Returns the number of event loops of all {@link LoomNioEventLoopGroup}s which were started on a virtual thread
+     * and are not terminated yet.
+     */
+    public static int pinnableLoops() {
+        return pinnableLoops.get();
+    }
+
+    synchronized void register(LoomNioEventLoop loop) {
+        final PinningStats loopStats = new PinningStats(loop);
+        stats.add(loopStats);
+        loop.terminationFuture().addListener(new FutureListener<Object>() {
+            @Override
+            public void operationComplete(Future<Object> future) {
+                stats.remove(loopStats);
+            }
+        });
+
+        if (sampleFuture == null && sampleIntervalMillis > 0) {
+            sampleFuture = GlobalEventExecutor.INSTANCE.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sample();
+                }
+            }, sampleIntervalMillis, sampleIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Called by the thread of the event loop before it selects for the first time. Only then it is known whether
+     * the thread is virtual and may pin a carrier.
+     *
+     * @throws IllegalStateException if the event loop does not fit into the carrier capacity and the policy is
+     *                               {@link Policy#REJECT}
+     */
+    synchronized void loopStarted(LoomNioEventLoop loop) {
+        if (!Thread.currentThread().isVirtual()) {
+            // Platform threads have no carrier to pin.
+            return;
+        }
+        final int loops = pinnableLoops.incrementAndGet();
+        final int capacity = carrierCapacity();
+        if (loops > capacity) {
+            if (policy == Policy.REJECT) {
+                pinnableLoops.decrementAndGet();
+                throw new IllegalStateException("Too many event loops: " + loops + " (expected: <= " + capacity +
+                        "). Each event loop may pin a carrier thread while selecting. Use less event loops, raise " +
+                        "-Djdk.virtualThreadScheduler.maxPoolSize or use the warn policy.");
+            }
+            if (policy == Policy.WARN && !warned) {
+                warned = true;
+                logger.warn("{} event loops may pin up to {} carrier threads, but the virtual thread scheduler " +
+                        "only provides {}. Virtual threads may stall once all carriers are pinned.",
+                        loops, loops, capacity);
+            }
+        }
+        loop.terminationFuture().addListener(new FutureListener<Object>() {
+            @Override
+            public void operationComplete(Future<Object> future) {
+                pinnableLoops.decrementAndGet();
+            }
+        });
+    }
+
+    private void sample() {
+        if (group.isTerminated()) {
+            sampleFuture.cancel(false);
+            return;
+        }
+        final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+        for (PinningStats s: stats) {
+            s.sample(intervalNanos);
+        }
+    }
+
+    /**
+     * Returns the pinning statistics of the event loops of the group.
+     */
+    public List<PinningStats> stats() {
+        return new ArrayList<PinningStats>(stats);
+    }
+
+    /**
+     * Returns a human readable report of the pinning statistics, listing the most recent pinned stack of every
+     * event loop which was seen pinned.
+     */
+    public String report() {
+        StringBuilder buf = new StringBuilder(256);
+        buf.append("Carrier pinning: ").append(stats.size()).append(" event loop(s), ")
+           .append(pinnableLoops()).append(" of ").append(carrierCapacity()).append(" carriers pinnable")
+           .append(System.lineSeparator());
+        for (PinningStats s: stats) {
+            buf.append("  ").append(s).append(System.lineSeparator());
+            StackTraceElement[] stack = s.lastStackSample();
+            if (stack != null) {
+                for (StackTraceElement e: stack) {
+                    buf.append("      at ").append(e).append(System.lineSeparator());
+                }
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Classifies a sample of a virtual thread. Returns the reason why the thread pins its carrier, or {@code null}
+     * if it does not seem to pin it.
+     */
+    static PinningReason pinningReason(Thread.State state, StackTraceElement[] stack) {
+        for (StackTraceElement e: stack) {
+            String className = e.getClassName();
+            String methodName = e.getMethodName();
+            if ("java.lang.Object".equals(className) && methodName.startsWith("wait")) {
+                return PinningReason.WAIT;
+            }
+            if (className.startsWith("sun.nio.ch.") && className.endsWith("SelectorImpl") &&
+                    ("lockAndDoSelect".equals(methodName) || "doSelect".equals(methodName))) {
+                return PinningReason.SELECT;
+            }
+        }
+        return state == Thread.State.BLOCKED ? PinningReason.MONITOR : null;
+    }
+
+    /**
+     * The configuration of the {@link CarrierPinningDetector} of a {@link LoomNioEventLoopGroup}. A new instance
+     * starts with the defaults given by the system properties.
+     */
+    public static final class Config {
+        private Policy policy = DEFAULT_POLICY;
+        private long sampleIntervalMillis = DEFAULT_SAMPLE_INTERVAL_MILLIS;
+
+        /**
+         * Sets what to do when more event loops are created than carriers can be pinned.
+         */
+        public Config policy(Policy policy) {
+            this.policy = ObjectUtil.checkNotNull(policy, "policy");
+            return this;
+        }
+
+        /**
+         * Sets the interval in which the event loop threads are sampled, {@code 0} disables sampling.
+         */
+        public Config sampleInterval(long interval, TimeUnit unit) {
+            sampleIntervalMillis = unit.toMillis(ObjectUtil.checkPositiveOrZero(interval, "interval"));
+            return this;
+        }
+    }
+
+    /**
+     * The reason why a virtual thread pins its carrier.
+     */
+    public enum PinningReason {
+        SELECT,
+        MONITOR,
+        WAIT
+    }
+
+    /**
+     * The pinning statistics of one {@link LoomNioEventLoop}. Only the sampling task writes to it.
+     */
+    public static final class PinningStats {
+        private final LoomNioEventLoop loop;
+        private final AtomicReferenceArray<StackTraceElement[]> stackSamples =
+                new AtomicReferenceArray<StackTraceElement[]>(STACK_SAMPLES);
+        private final long[] reasons = new long[PinningReason.values().length];
+        private volatile long samples;
+        private volatile long pinnedSamples;
+        private volatile long pinnedTimeNanos;
+
+        PinningStats(LoomNioEventLoop loop) {
+            this.loop = loop;
+        }
+
+        void sample(long intervalNanos) {
+            Thread thread = loop.loopThread();
+            if (thread == null || !thread.isVirtual()) {
+                // Platform threads have no carrier to pin.
+                return;
+            }
+            StackTraceElement[] stack = thread.getStackTrace();
+            PinningReason reason = pinningReason(thread.getState(), stack);
+            samples++;
+            if (reason != null) {
+                stackSamples.set((int) (pinnedSamples % STACK_SAMPLES), stack);
+                reasons[reason.ordinal()]++;
+                pinnedSamples++;
+                pinnedTimeNanos += intervalNanos;
+            }
+        }
+
+        /**
+         * Returns the event loop.
+         */
+        public LoomNioEventLoop eventLoop() {
+            return loop;
+        }
+
+        /**
+         * Returns the number of samples taken.
+         */
+        public long samples() {
+            return samples;
+        }
+
+        /**
+         * Returns the number of samples in which the event loop pinned its carrier.
+         */
+        public long pinnedSamples() {
+            return pinnedSamples;
+        }
+
+        /**
+         * Returns the number of pinned samples with the given reason. The value is a best effort.
+         */
+        public long pinnedSamples(PinningReason reason) {
+            return reasons[reason.ordinal()];
+        }
+
+        /**
+         * Returns the estimated time in nanoseconds the event loop pinned its carrier.
+         */
+        public long pinnedTimeNanos() {
+            return pinnedTimeNanos;
+        }
+
+        /**
+         * Returns the most recent stacks of the event loop thread which were sampled while it pinned its carrier.
+         */
+        public List<StackTraceElement[]> stackSamples() {
+            List<StackTraceElement[]> list = new ArrayList<StackTraceElement[]>(STACK_SAMPLES);
+            for (int i = 0; i < STACK_SAMPLES; i++) {
+                StackTraceElement[] stack = stackSamples.get(i);
+                if (stack != null) {
+                    list.add(stack);
+                }
+            }
+            return list;
+        }
+
+        StackTraceElement[] lastStackSample() {
+            long pinned = pinnedSamples;
+            return pinned == 0 ? null : stackSamples.get((int) ((pinned - 1) % STACK_SAMPLES));
+        }
+
+        @Override
+        public String toString() {
+            long samples = this.samples;
+            return loop + ": pinned " + pinnedSamples + '/' + samples + " samples (" +
+                    (samples == 0 ? 0 : pinnedSamples * 100 / samples) + "%, ~" +
+                    TimeUnit.NANOSECONDS.toMillis(pinnedTimeNanos) + "ms, select: " +
+                    pinnedSamples(PinningReason.SELECT) + ", monitor: " + pinnedSamples(PinningReason.MONITOR) +
+                    ", wait: " + pinnedSamples(PinningReason.WAIT) + ')';
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ServerChannel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Moves the busiest channels of the hottest {@link LoomNioEventLoop} of a {@link LoomNioEventLoopGroup} to the
+ * coldest one, so long-lived connections do not pin a load which drifted apart to the event loop they were
+ * registered to.
+ * <p>
+ * The load of an event loop is the number of ready channels it processed within the sample interval. If the hottest
+ * event loop processed at least {@code minReadyEvents} and {@code imbalanceRatio} times as many as the coldest one,
+ * its channels are ranked by their own ready count since the last rebalancing of that loop. Starting with the
+ * busiest, up to {@code maxMigrations} channels are moved with
+ * {@link LoomNioEventLoopGroup#migrate(io.netty.channel.Channel, io.netty.channel.EventLoop)} as long as they fit
+ * into half of the difference, so a single heavy channel does not just move the hot spot. {@link ServerChannel}s
+ * are never moved.
+ */
+public final class ChannelRebalancer {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ChannelRebalancer.class);
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final double DEFAULT_IMBALANCE_RATIO = 2;
+    private static final long DEFAULT_MIN_READY_EVENTS = 1024;
+    private static final int DEFAULT_MAX_MIGRATIONS = 8;
+
+    private final LoomNioEventLoopGroup group;
+    private final double imbalanceRatio;
+    private final long minReadyEvents;
+    private final int maxMigrations;
+    private final Future<?> rebalanceFuture;
+    private final AtomicLong migrations = new AtomicLong();
+
+    // Only accessed by the rebalancing task.
+    private Map<LoomNioEventLoop, Long> lastReadyEvents = new IdentityHashMap<LoomNioEventLoop, Long>();
+
+    /**
+     * Create a new instance using the default thresholds, which rebalances the given group once a second.
+     */
+    public ChannelRebalancer(LoomNioEventLoopGroup group) {
+        this(group, DEFAULT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_IMBALANCE_RATIO,
+                DEFAULT_MIN_READY_EVENTS, DEFAULT_MAX_MIGRATIONS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param group          the {@link LoomNioEventLoopGroup} to rebalance.
+     * @param interval       the interval in which the load is sampled and channels are moved.
+     * @param unit           the {@link TimeUnit} of {@code interval}.
+     * @param imbalanceRatio how many times busier than the coldest event loop the hottest one must be.
+     * @param minReadyEvents the number of ready channels the hottest event loop must have processed within one
+     *                       interval, so idle groups are left alone.
+     * @param maxMigrations  the maximum number of channels moved per interval.
+     */
+    public ChannelRebalancer(LoomNioEventLoopGroup group, long interval, TimeUnit unit, double imbalanceRatio,
+                             long minReadyEvents, int maxMigrations) {
+        this.group = ObjectUtil.checkNotNull(group, "group");
+        if (imbalanceRatio <= 1) {
+            throw new IllegalArgumentException("imbalanceRatio: " + imbalanceRatio + " (expected: > 1)");
+        }
+        this.imbalanceRatio = imbalanceRatio;
+        this.minReadyEvents = ObjectUtil.checkPositiveOrZero(minReadyEvents, "minReadyEvents");
+        this.maxMigrations = ObjectUtil.checkPositive(maxMigrations, "maxMigrations");
+        ObjectUtil.checkPositive(interval, "interval");
+        rebalanceFuture = GlobalEventExecutor.INSTANCE.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                rebalance();
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Returns the number of channels which were moved so far.
+     */
+    public long migrations() {
+        return migrations.get();
+    }
+
+    /**
+     * Stops rebalancing. Migrations which already started are completed.
+     */
+    public void stop() {
+        rebalanceFuture.cancel(false);
+    }
+
+    private void rebalance() {
+        if (group.isShuttingDown()) {
+            stop();
+            return;
+        }
+
+        // Event loops an elastic group retired in the meantime drop out of the map.
+        Map<LoomNioEventLoop, Long> readyEvents = new IdentityHashMap<LoomNioEventLoop, Long>();
+        LoomNioEventLoop hottest = null;
+        LoomNioEventLoop coldest = null;
+        long hotLoad = -1;
+        long coldLoad = Long.MAX_VALUE;
+        for (EventExecutor e: group) {
+            LoomNioEventLoop loop = (LoomNioEventLoop) e;
+            long events = loop.readyEvents();
+            Long last = lastReadyEvents.get(loop);
+            readyEvents.put(loop, events);
+            if (last == null) {
+                // No baseline for this event loop yet.
+                continue;
+            }
+            long load = events - last;
+            if (load > hotLoad) {
+                hotLoad = load;
+                hottest = loop;
+            }
+            if (load < coldLoad) {
+                coldLoad = load;
+                coldest = loop;
+            }
+        }
+        lastReadyEvents = readyEvents;
+
+        if (hottest == null || hottest == coldest || hotLoad < minReadyEvents || hotLoad < coldLoad * imbalanceRatio) {
+            return;
+        }
+        final LoomNioEventLoop source = hottest;
+        final LoomNioEventLoop target = coldest;
+        final long loopLoad = hotLoad;
+        final long budget = (hotLoad - coldLoad) / 2;
+        source.execute(new Runnable() {
+            @Override
+            public void run() {
+                moveBusiestChannels(source, target, loopLoad, budget);
+            }
+        });
+    }
+
+    private void moveBusiestChannels(LoomNioEventLoop source, LoomNioEventLoop target, long loopLoad, long budget) {
+        final List<AbstractNioChannel> channels = source.channels();
+        final long[] loads = new long[channels.size()];
+        final Integer[] order = new Integer[loads.length];
+        long total = 0;
+        for (int i = 0; i < loads.length; i++) {
+            AbstractNioChannel ch = channels.get(i);
+            loads[i] = ch.readyEvents - ch.sampledReadyEvents;
+            ch.sampledReadyEvents = ch.readyEvents;
+            order[i] = i;
+            total += loads[i];
+        }
+        if (total == 0) {
+            return;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(loads[b], loads[a]);
+            }
+        });
+
+        int moved = 0;
+        for (int i = 0; i < order.length && moved < maxMigrations; i++) {
+            final AbstractNioChannel ch = channels.get(order[i]);
+            if (loads[order[i]] == 0) {
+                break;
+            }
+            // The channel counters cover the time since the last rebalancing of this event loop, scale them to the
+            // load of the event loop within the last interval.
+            long load = (long) ((double) loads[order[i]] / total * loopLoad);
+            if (load > budget || ch instanceof ServerChannel || !ch.isActive()) {
+                continue;
+            }
+            budget -= load;
+            moved++;
+            group.migrate(ch, target).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (future.isSuccess()) {
+                        migrations.incrementAndGet();
+                    } else if (logger.isDebugEnabled()) {
+                        logger.debug("Failed to move {} to another event loop.", ch, future.cause());
+                    }
+                }
+            });
+        }
+        if (moved > 0 && logger.isDebugEnabled()) {
+            logger.debug("Moving {} channel(s) from {} to {}.", moved, source, target);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * {@link LoomNioEventLoopGroup} which grows and shrinks the number of {@link LoomNioEventLoop}s with the load.
+ * <p>
+ * The group starts with {@code minThreads} event loops and samples the load of each loop in a fixed interval. The
+ * load of a loop is the sum of its {@link LoomNioEventLoop#pendingTasks()} and
+ * {@link LoomNioEventLoop#lastSelectedKeys()}, averaged over the iterations of the loop since the previous sample.
+ * If the average load stays at or above {@code loadThreshold} for
+ * {@code sustainedSamples} samples in a row a new event loop is added, up to {@code maxThreads}. An event loop that
+ * was idle for {@code sustainedSamples} samples in a row is retired: it is removed from the chooser, its channels
+ * are migrated to the remaining event loops and it is shut down afterwards. Channels which can not be migrated,
+ * because a handler scheduled timers on the retired event loop, are served by it until they are closed.
+ */
+public class ElasticLoomNioEventLoopGroup extends LoomNioEventLoopGroup {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ElasticLoomNioEventLoopGroup.class);
+
+    private static final int DEFAULT_LOAD_THRESHOLD = 64;
+    private static final int DEFAULT_SUSTAINED_SAMPLES = 5;
+    private static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 200;
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int loadThreshold;
+    private final int sustainedSamples;
+    private final Future<?> sampleFuture;
+    private final ChannelFutureListener redirectFromRetiredLoop = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            final Channel ch = future.channel();
+            if (!future.isSuccess() || !isRetired(ch.eventLoop())) {
+                return;
+            }
+            // next() returned the event loop before it was retired and the retirement did not see the channel yet.
+            migrate(ch, next()).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (!future.isSuccess() && ch.isOpen()) {
+                        logger.warn("Failed to move a Channel away from a retired event loop.", future.cause());
+                        ch.unsafe().closeForcibly();
+                    }
+                }
+            });
+        }
+    };
+
+    // Only accessed by the sampling task.
+    private final Map<EventExecutor, Integer> idleSamples = new IdentityHashMap<EventExecutor, Integer>();
+    // Accumulated load and iterations of each event loop at the previous sample.
+    private Map<EventExecutor, long[]> lastLoad = new IdentityHashMap<EventExecutor, long[]>();
+    private int busySamples;
+
+    /**
+     * Create a new instance using the default thresholds.
+     *
+     * @param minThreads    the number of event loops to start with and to keep at least.
+     * @param maxThreads    the maximum number of event loops.
+     * @param threadFactory the {@link ThreadFactory} to use, or {@code null} if the default should be used.
+     */
+    public ElasticLoomNioEventLoopGroup(int minThreads, int maxThreads, ThreadFactory threadFactory) {
+        this(minThreads, maxThreads, threadFactory, DEFAULT_LOAD_THRESHOLD, DEFAULT_SUSTAINED_SAMPLES,
+                DEFAULT_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param minThreads       the number of event loops to start with and to keep at least.
+     * @param maxThreads       the maximum number of event loops.
+     * @param threadFactory    the {@link ThreadFactory} to use, or {@code null} if the default should be used.
+     * @param loadThreshold    the average load per event loop at which the group grows.
+     * @param sustainedSamples the number of consecutive samples a condition must hold before the group grows or
+     *                         an idle event loop is retired.
+     * @param sampleInterval   the interval in which the load is sampled.
+     * @param unit             the {@link TimeUnit} of {@code sampleInterval}.
+     */
+    public ElasticLoomNioEventLoopGroup(int minThreads, int maxThreads, ThreadFactory threadFactory,
+                                        int loadThreshold, int sustainedSamples,
+                                        long sampleInterval, TimeUnit unit) {
+        super(minThreads, threadFactory, SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+        if (maxThreads < minThreads) {
+            throw new IllegalArgumentException(
+                    "maxThreads: " + maxThreads + " (expected: >= minThreads (" + minThreads + "))");
+        }
+        this.minThreads = ObjectUtil.checkPositive(minThreads, "minThreads");
+        this.maxThreads = maxThreads;
+        this.loadThreshold = ObjectUtil.checkPositive(loadThreshold, "loadThreshold");
+        this.sustainedSamples = ObjectUtil.checkPositive(sustainedSamples, "sustainedSamples");
+        ObjectUtil.checkPositive(sampleInterval, "sampleInterval");
+        sampleFuture = GlobalEventExecutor.INSTANCE.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, sampleInterval, sampleInterval, unit);
+    }
+
+    private void sample() {
+        if (isShuttingDown()) {
+            sampleFuture.cancel(false);
+            return;
+        }
+
+        long totalLoad = 0;
+        int count = 0;
+        LoomNioEventLoop retireCandidate = null;
+        // Event loops which were retired in the meantime drop out of the map.
+        Map<EventExecutor, long[]> currentLoad = new IdentityHashMap<EventExecutor, long[]>();
+        for (EventExecutor e: this) {
+            LoomNioEventLoop loop = (LoomNioEventLoop) e;
+            long iterations = loop.loadIterations();
+            long accumulated = loop.accumulatedLoad();
+            currentLoad.put(loop, new long[] { accumulated, iterations });
+            long[] last = lastLoad.get(loop);
+            long load;
+            if (last != null && iterations > last[1]) {
+                load = (accumulated - last[0]) / (iterations - last[1]);
+            } else {
+                // No iteration completed since the previous sample, so the event loop either blocked in select or is
+                // stuck in a single iteration whose backlog shows up in its task queue.
+                load = loop.pendingTasks();
+            }
+            totalLoad += load;
+            count++;
+
+            if (load == 0) {
+                Integer samples = idleSamples.get(loop);
+                int idle = samples == null ? 1 : samples + 1;
+                idleSamples.put(loop, idle);
+                if (idle >= sustainedSamples && retireCandidate == null) {
+                    retireCandidate = loop;
+                }
+            } else {
+                idleSamples.remove(loop);
+            }
+        }
+
+        lastLoad = currentLoad;
+
+        if (count > 0 && totalLoad / count >= loadThreshold) {
+            busySamples++;
+        } else {
+            busySamples = 0;
+        }
+
+        if (busySamples >= sustainedSamples && count < maxThreads) {
+            busySamples = 0;
+            try {
+                addChild();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Added an event loop, now using {} event loops.", executorCount());
+                }
+            } catch (IllegalStateException e) {
+                logger.warn("Failed to add an event loop.", e);
+            }
+        } else if (retireCandidate != null && busySamples == 0 && count > minThreads) {
+            idleSamples.remove(retireCandidate);
+            if (removeChild(retireCandidate)) {
+                retire(retireCandidate);
+            }
+        }
+    }
+
+    /**
+     * Registers the channel with one of the event loops. A registration which raced with the retirement of the
+     * chosen event loop is moved to another event loop once it completed.
+     */
+    @Override
+    public ChannelFuture register(Channel channel) {
+        return super.register(channel).addListener(redirectFromRetiredLoop);
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return super.register(promise).addListener(redirectFromRetiredLoop);
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        return super.register(channel, promise).addListener(redirectFromRetiredLoop);
+    }
+
+    private void retire(final LoomNioEventLoop loop) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Retiring idle event loop {}, now using {} event loops.", loop, executorCount());
+        }
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<AbstractNioChannel> channels = loop.channels();
+                if (channels.isEmpty()) {
+                    loop.shutdownGracefully();
+                    return;
+                }
+
+                // Shutdown must wait for all migrations as it would close the channels otherwise.
+                final AtomicInteger remaining = new AtomicInteger(channels.size());
+                final ChannelFutureListener countDown = new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        if (remaining.decrementAndGet() == 0) {
+                            loop.shutdownGracefully();
+                        }
+                    }
+                };
+                for (final AbstractNioChannel ch: channels) {
+                    if (ch.isPinnedToEventLoop()) {
+                        // Its timers run on this event loop, keep serving it until it is closed.
+                        ch.closeFuture().addListener(countDown);
+                        continue;
+                    }
+                    migrate(ch, next()).addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (!future.isSuccess() && ch.isOpen()) {
+                                if (ch.eventLoop() == loop && ch.isPinnedToEventLoop()) {
+                                    ch.closeFuture().addListener(countDown);
+                                    return;
+                                }
+                                logger.warn("Failed to move a Channel away from a retired event loop.",
+                                        future.cause());
+                                ch.unsafe().closeForcibly();
+                            }
+                            countDown.operationComplete(future);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        sampleFuture.cancel(false);
+        return super.shutdownGracefully(quietPeriod, timeout, unit);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.concurrent.LongHistogram;
+
+/**
+ * Adjusts the {@link LoomNioEventLoop#getIoRatio() ioRatio} of an event loop from two latency signals of its
+ * {@link NioEventLoopMetrics}: how long tasks waited in the task queue and how long the read backlog, keys which were
+ * still ready after they were processed, waited to be processed again. Every {@value #EVALUATION_INTERVAL_MILLIS}
+ * milliseconds the p99 of both signals is compared with its target. If one of them misses its target and is worse
+ * than the other one by at least {@code HYSTERESIS}, the ratio moves by {@code STEP} towards it. Within the dead band
+ * the ratio is kept.
+ * <p>
+ * A signal is only evaluated once it has {@code MIN_SAMPLES} samples. The task latency is sampled, so while the
+ * controller is active every {@value #TASK_LATENCY_SAMPLE_INTERVAL}th task is sampled, and a signal with too few
+ * samples keeps collecting over up to {@code MAX_WINDOW_INTERVALS} intervals before it is discarded. So the task
+ * latency counts from about {@code 128} tasks per second on.
+ * <p>
+ * Only accessed by the event loop, apart from the constructor.
+ */
+final class IoRatioController {
+
+    static final long EVALUATION_INTERVAL_MILLIS = 100;
+    static final int TASK_LATENCY_SAMPLE_INTERVAL = 16;
+    private static final long EVALUATION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(EVALUATION_INTERVAL_MILLIS);
+    private static final int MIN_SAMPLES = 8;
+    private static final int MAX_WINDOW_INTERVALS = 10;
+    private static final int STEP = 5;
+    private static final double HYSTERESIS = 1.25;
+
+    private final int minIoRatio;
+    private final int maxIoRatio;
+    private final Signal taskLatency;
+    private final Signal ioLatency;
+    private long lastEvaluationNanos;
+
+    IoRatioController(NioEventLoopMetrics metrics, long taskLatencyTargetNanos, long ioLatencyTargetNanos,
+                      int minIoRatio, int maxIoRatio) {
+        if (minIoRatio <= 0 || maxIoRatio >= 100 || minIoRatio > maxIoRatio) {
+            throw new IllegalArgumentException("minIoRatio: " + minIoRatio + ", maxIoRatio: " + maxIoRatio +
+                    " (expected: 0 < minIoRatio <= maxIoRatio < 100)");
+        }
+        if (taskLatencyTargetNanos <= 0 || ioLatencyTargetNanos <= 0) {
+            throw new IllegalArgumentException("taskLatencyTarget: " + taskLatencyTargetNanos +
+                    "ns, ioLatencyTarget: " + ioLatencyTargetNanos + "ns (expected: > 0)");
+        }
+        this.minIoRatio = minIoRatio;
+        this.maxIoRatio = maxIoRatio;
+        taskLatency = new Signal(metrics.taskLatency(), taskLatencyTargetNanos);
+        ioLatency = new Signal(metrics.ioLatency(), ioLatencyTargetNanos);
+        lastEvaluationNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the ioRatio to use from now on.
+     */
+    int adjust(long nowNanos, int ioRatio) {
+        if (nowNanos - lastEvaluationNanos < EVALUATION_INTERVAL_NANOS) {
+            return ioRatio;
+        }
+        lastEvaluationNanos = nowNanos;
+
+        double taskPressure = taskLatency.pressure();
+        double ioPressure = ioLatency.pressure();
+
+        int newIoRatio = ioRatio;
+        if (taskPressure > 1 && taskPressure > ioPressure * HYSTERESIS) {
+            // Tasks miss their target, give them more time.
+            newIoRatio -= STEP;
+        } else if (ioPressure > 1 && ioPressure > taskPressure * HYSTERESIS) {
+            newIoRatio += STEP;
+        }
+        return Math.max(minIoRatio, Math.min(maxIoRatio, newIoRatio));
+    }
+
+    /**
+     * The values a {@link LongHistogram} recorded since the last evaluation which had enough samples.
+     */
+    private static final class Signal {
+        private final LongHistogram histogram;
+        private final long targetNanos;
+        private final long[] last = new long[LongHistogram.BUCKETS];
+        private final long[] window = new long[LongHistogram.BUCKETS];
+        private int intervals;
+
+        Signal(LongHistogram histogram, long targetNanos) {
+            this.histogram = histogram;
+            this.targetNanos = targetNanos;
+            histogram.snapshot(last);
+        }
+
+        /**
+         * Returns the p99 of the window divided by the target, or {@code 0} if there are not enough samples yet.
+         */
+        double pressure() {
+            histogram.snapshot(window);
+            long samples = 0;
+            for (int i = 0; i < LongHistogram.BUCKETS; i++) {
+                window[i] -= last[i];
+                samples += window[i];
+            }
+            intervals++;
+            if (samples < MIN_SAMPLES && intervals < MAX_WINDOW_INTERVALS) {
+                // Keep collecting, the window grows until the next evaluation.
+                return 0;
+            }
+            intervals = 0;
+            for (int i = 0; i < LongHistogram.BUCKETS; i++) {
+                last[i] += window[i];
+            }
+            if (samples < MIN_SAMPLES) {
+                return 0;
+            }
+            return (double) LongHistogram.percentile(window, 99) / targetNanos;
+        }
+    }
+}
@@ -10,12 +10,16 @@ import java.nio.channels.spi.SelectorProvider;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /*
  * Copyright 2012 The Netty Project
@@ -42,6 +46,7 @@ import io.netty.channel.SelectStrategy;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.IntSupplier;
 import io.netty.util.concurrent.LoomRejectedExecutionHandler;
+import io.netty.util.concurrent.PriorityLoadSheddingRejectedExecutionHandler;
 import io.netty.util.concurrent.VirtualThreadEventLoop;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
@@ -64,9 +69,26 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
     private static final boolean DISABLE_KEY_SET_OPTIMIZATION =
             SystemPropertyUtil.getBoolean("io.netty.noKeySetOptimization", false);
 
+    // Skips the reflective instrumentation of sun.nio.ch.SelectorImpl and uses Selector.select(Consumer) instead.
+    private static final boolean SELECTED_KEY_CONSUMER =
+            SystemPropertyUtil.getBoolean("io.netty.selectedKeyConsumer", false);
+
     private static final int MIN_PREMATURE_SELECTOR_RETURNS = 3;
     private static final int SELECTOR_AUTO_REBUILD_THRESHOLD;
 
+    // Rebuilds the Selector once it returned prematurely this often within a second, even if real work in between
+    // keeps the consecutive count below SELECTOR_AUTO_REBUILD_THRESHOLD.
+    private static final int SELECTOR_PREMATURE_RETURNS_PER_SECOND =
+            Math.max(0, SystemPropertyUtil.getInt("io.netty.selectorPrematureReturnsPerSecond", 256));
+    private static final long SELECTOR_HEALTH_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // The average I/O time halves with every such period the event loop did not iterate, e.g. while it is blocked in
+    // select().
+    private static final long IO_TIME_HALF_LIFE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // The number of keys moved to a rebuilt Selector per loop iteration.
+    private static final int SELECTOR_MIGRATION_BATCH_SIZE =
+            Math.max(1, SystemPropertyUtil.getInt("io.netty.selectorMigrationBatchSize", 256));
+
     private final IntSupplier selectNowSupplier = new IntSupplier() {
         @Override
         public int get() throws Exception {
@@ -105,7 +127,10 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
 
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.noKeySetOptimization: {}", DISABLE_KEY_SET_OPTIMIZATION);
+            logger.debug("-Dio.netty.selectedKeyConsumer: {}", SELECTED_KEY_CONSUMER);
             logger.debug("-Dio.netty.selectorAutoRebuildThreshold: {}", SELECTOR_AUTO_REBUILD_THRESHOLD);
+            logger.debug("-Dio.netty.selectorPrematureReturnsPerSecond: {}", SELECTOR_PREMATURE_RETURNS_PER_SECOND);
+            logger.debug("-Dio.netty.selectorMigrationBatchSize: {}", SELECTOR_MIGRATION_BATCH_SIZE);
         }
     }
 
@@ -130,24 +155,79 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
     private final SelectStrategy selectStrategy;
 
     private volatile int ioRatio = 50;
+    private volatile IoRatioController ioRatioController;
+    // The time the event loop finished processing selected keys, or 0 if it did not process any in the last
+    // iteration. Only accessed by the event loop.
+    private long lastIoEndNanos;
+    // Premature selector returns within the current health window, only accessed by the event loop.
+    private long healthWindowStartNanos;
+    private int prematureReturnsInWindow;
+
+    // The previous unwrapped Selector and its keys while they are moved to a rebuilt Selector, only accessed by the
+    // event loop.
+    private Selector migratingSelector;
+    private SelectionKey[] migratingKeys;
+    private int migratedKeys;
+    private int migratedChannels;
+    private final Consumer<SelectionKey> migratingKeyProcessor = new Consumer<SelectionKey>() {
+        @Override
+        public void accept(SelectionKey k) {
+            final Object a = k.attachment();
+            if (a instanceof AbstractNioChannel) {
+                processSelectedKey(k, (AbstractNioChannel) a);
+            } else {
+                @SuppressWarnings("unchecked")
+                NioTask<SelectableChannel> task = (NioTask<SelectableChannel>) a;
+                processSelectedKey(k, task);
+            }
+        }
+    };
     private int cancelledKeys;
     private boolean needsToSelectAgain;
+    // Only written by the event loop, other threads read it as a best effort load indicator.
+    private volatile int lastSelectedKeys;
+    // Only accessed by the event loop, which publishes it once per iteration for the ChannelRebalancer.
+    private long readyEvents;
+    private volatile long publishedReadyEvents;
+    // Sum of the selected keys and pending tasks over all iterations, published once per iteration like readyEvents.
+    private long accumulatedLoad;
+    private long loadIterations;
+    private volatile long publishedLoad;
+    private volatile long publishedLoadIterations;
+    private volatile long ioTimeNanos;
+    private volatile long ioTimeSampledNanos;
+    private volatile Thread loopThread;
+
+    // Dense table of the AbstractNioChannels registered with this event loop. Every channel knows its slot, so it is
+    // added and removed in O(1). Only accessed by the event loop.
+    private AbstractNioChannel[] channelSlots = new AbstractNioChannel[16];
+    private int channelSlotCount;
+    // channelSlotCount published for the EventExecutorChooser, which reads it from other threads.
+    private volatile int registeredChannels;
+    // Set once a NioTask was registered, until then every selected key belongs to an AbstractNioChannel.
+    private boolean hasNioTasks;
 
     LoomNioEventLoop(LoomNioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider,
                  SelectStrategy strategy, LoomRejectedExecutionHandler rejectedExecutionHandler,
                  EventLoopTaskQueueFactory taskQueueFactory, EventLoopTaskQueueFactory tailTaskQueueFactory) {
-        super(parent, executor, false, newTaskQueue(taskQueueFactory), newTaskQueue(tailTaskQueueFactory),
-                rejectedExecutionHandler);
+        super(parent, executor, false, newTaskQueue(taskQueueFactory, rejectedExecutionHandler),
+                newTaskQueue(tailTaskQueueFactory, null), rejectedExecutionHandler);
         this.provider = ObjectUtil.checkNotNull(selectorProvider, "selectorProvider");
         this.selectStrategy = ObjectUtil.checkNotNull(strategy, "selectStrategy");
         final SelectorTuple selectorTuple = openSelector();
         this.selector = selectorTuple.selector;
         this.unwrappedSelector = selectorTuple.unwrappedSelector;
+        metrics().ioRatio(ioRatio);
     }
 
     private static Queue<Runnable> newTaskQueue(
-            EventLoopTaskQueueFactory queueFactory) {
+            EventLoopTaskQueueFactory queueFactory, LoomRejectedExecutionHandler rejectedExecutionHandler) {
         if (queueFactory == null) {
+            if (rejectedExecutionHandler instanceof PriorityLoadSheddingRejectedExecutionHandler) {
+                // LOOM PATCH: The MPSC queue can not remove the tasks the handler sheds.
+                return ((PriorityLoadSheddingRejectedExecutionHandler) rejectedExecutionHandler)
+                        .newTaskQueue(DEFAULT_MAX_PENDING_TASKS);
+            }
             return newTaskQueue0(DEFAULT_MAX_PENDING_TASKS);
         }
         return queueFactory.newTaskQueue(DEFAULT_MAX_PENDING_TASKS);
@@ -179,6 +259,9 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
         if (DISABLE_KEY_SET_OPTIMIZATION) {
             return new SelectorTuple(unwrappedSelector);
         }
+        if (SELECTED_KEY_CONSUMER) {
+            return newSelectedKeyConsumerTuple(unwrappedSelector);
+        }
 
         Object maybeSelectorImplClass = AccessController.doPrivileged(new PrivilegedAction<Object>() {
             @Override
@@ -201,7 +284,7 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                 Throwable t = (Throwable) maybeSelectorImplClass;
                 logger.trace("failed to instrument a special java.util.Set into: {}", unwrappedSelector, t);
             }
-            return new SelectorTuple(unwrappedSelector);
+            return newSelectedKeyConsumerTuple(unwrappedSelector);
         }
 
         final Class<?> selectorImplClass = (Class<?>) maybeSelectorImplClass;
@@ -252,10 +335,9 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
         });
 
         if (maybeException instanceof Exception) {
-            selectedKeys = null;
             Exception e = (Exception) maybeException;
             logger.trace("failed to instrument a special java.util.Set into: {}", unwrappedSelector, e);
-            return new SelectorTuple(unwrappedSelector);
+            return newSelectedKeyConsumerTuple(unwrappedSelector);
         }
         selectedKeys = selectedKeySet;
         logger.trace("instrumented a special java.util.Set into: {}", unwrappedSelector);
@@ -263,6 +345,19 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                                  new SelectedSelectionKeySetSelector(unwrappedSelector, selectedKeySet));
     }
 
+    /**
+     * Fallback for selectors which can not be instrumented, for example because the JDK internals are strongly
+     * encapsulated. The ready keys are still collected into a {@link SelectedSelectionKeySet}, so the selected keys
+     * are processed by {@link #processSelectedKeysOptimized()} instead of iterating over them.
+     */
+    private SelectorTuple newSelectedKeyConsumerTuple(Selector unwrappedSelector) {
+        final SelectedSelectionKeySet selectedKeySet = new SelectedSelectionKeySet();
+        selectedKeys = selectedKeySet;
+        logger.trace("using Selector.select(Consumer) to collect the selected keys of: {}", unwrappedSelector);
+        return new SelectorTuple(unwrappedSelector,
+                                 new SelectedKeyConsumerSelector(unwrappedSelector, selectedKeySet));
+    }
+
     /**
      * Returns the {@link SelectorProvider} used by this {@link NioEventLoop} to obtain the {@link Selector}.
      */
@@ -321,6 +416,7 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
     }
 
     private void register0(SelectableChannel ch, int interestOps, NioTask<?> task) {
+        hasNioTasks = true;
         try {
             ch.register(unwrappedSelector, interestOps, task);
         } catch (Exception e) {
@@ -340,12 +436,66 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
      * The default value is {@code 50}, which means the event loop will try to spend the same amount of time for I/O
      * as for non-I/O tasks. The lower the number the more time can be spent on non-I/O tasks. If value set to
      * {@code 100}, this feature will be disabled and event loop will not attempt to balance I/O and non-I/O tasks.
+     * This disables the adaptive ioRatio.
      */
     public void setIoRatio(int ioRatio) {
         if (ioRatio <= 0 || ioRatio > 100) {
             throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
         }
+        ioRatioController = null;
+        metrics().sampleForAdaptiveIoRatio(false);
+        this.ioRatio = ioRatio;
+        metrics().ioRatio(ioRatio);
+    }
+
+    /**
+     * Lets the event loop adjust its ioRatio between {@code 10} and {@code 90}, see
+     * {@link #setAdaptiveIoRatio(long, long, TimeUnit, int, int)}.
+     */
+    public void setAdaptiveIoRatio(long taskLatencyTarget, long ioLatencyTarget, TimeUnit unit) {
+        setAdaptiveIoRatio(taskLatencyTarget, ioLatencyTarget, unit, 10, 90);
+    }
+
+    /**
+     * Lets the event loop adjust its ioRatio from the observed latencies instead of using a fixed split. The
+     * event loop compares the p99 of the time tasks waited in the task queue and of the read backlog, the time keys
+     * which were still ready after they were processed waited to be processed again, with the given targets, and
+     * gives more time to the side which misses its target by more. The current ratio and the adjustments are
+     * published through the {@link NioEventLoopMetrics}. While the ratio is adaptive every
+     * {@value IoRatioController#TASK_LATENCY_SAMPLE_INTERVAL}th task is sampled for its latency and the selector is
+     * polled without blocking after keys were processed, to find the backlog. {@link #setIoRatio(int)} switches back
+     * to a fixed ratio.
+     *
+     * @param taskLatencyTarget the p99 target for the time tasks wait in the task queue.
+     * @param ioLatencyTarget   the p99 target for the time the read backlog waits to be processed.
+     * @param unit              the {@link TimeUnit} of both targets.
+     * @param minIoRatio        the lower bound of the ioRatio.
+     * @param maxIoRatio        the upper bound of the ioRatio, less than {@code 100}.
+     */
+    public void setAdaptiveIoRatio(long taskLatencyTarget, long ioLatencyTarget, TimeUnit unit,
+                                   int minIoRatio, int maxIoRatio) {
+        ioRatioController = new IoRatioController(metrics(), unit.toNanos(taskLatencyTarget),
+                unit.toNanos(ioLatencyTarget), minIoRatio, maxIoRatio);
+        metrics().sampleForAdaptiveIoRatio(true);
+        int ioRatio = Math.max(minIoRatio, Math.min(maxIoRatio, this.ioRatio));
         this.ioRatio = ioRatio;
+        metrics().ioRatio(ioRatio);
+    }
+
+    /**
+     * Returns {@code true} if the ioRatio is adjusted from the observed latencies.
+     */
+    public boolean isAdaptiveIoRatio() {
+        return ioRatioController != null;
+    }
+
+    private void adjustIoRatio(IoRatioController controller, long nowNanos) {
+        int ioRatio = this.ioRatio;
+        int newIoRatio = controller.adjust(nowNanos, ioRatio);
+        if (newIoRatio != ioRatio && ioRatioController == controller) {
+            this.ioRatio = newIoRatio;
+            metrics().ioRatioAdjusted(ioRatio, newIoRatio);
+        }
     }
 
     /**
@@ -365,16 +515,101 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
         rebuildSelector0();
     }
 
+    /**
+     * Returns the number of {@link AbstractNioChannel}s registered with this event loop, including the channels which
+     * are still served by the old {@link Selector} while the selector is rebuilt. Channels registered via
+     * {@link #register(SelectableChannel, int, NioTask)} are not counted. Safe to call from any thread.
+     */
     @Override
     public int registeredChannels() {
-        return selector.keys().size() - cancelledKeys;
+        return registeredChannels;
+    }
+
+    /**
+     * Returns the number of {@link SelectionKey}s which were selected by the most recent select operation. The
+     * returned value is not guaranteed to be exact accurate and should be viewed as a best effort.
+     */
+    public int lastSelectedKeys() {
+        return lastSelectedKeys;
+    }
+
+    /**
+     * Returns the number of times channels of this event loop were ready. Used as a best effort load indicator.
+     */
+    long readyEvents() {
+        return publishedReadyEvents;
+    }
+
+    /**
+     * Returns the sum of {@link #lastSelectedKeys()} and {@link #pendingTasks()} over all iterations of this event
+     * loop so far. Divided by the difference of {@link #loadIterations()} it gives the average load between two
+     * samples. Used as a best effort load indicator.
+     */
+    long accumulatedLoad() {
+        return publishedLoad;
+    }
+
+    /**
+     * Returns the number of iterations which were added to {@link #accumulatedLoad()}.
+     */
+    long loadIterations() {
+        return publishedLoadIterations;
+    }
+
+    /**
+     * Returns the {@link Thread} which runs this event loop or {@code null} if it was not started yet.
+     */
+    Thread loopThread() {
+        return loopThread;
+    }
+
+    /**
+     * Returns a snapshot of the {@link AbstractNioChannel}s registered with this event loop. Must be called from
+     * within the event loop.
+     */
+    List<AbstractNioChannel> channels() {
+        assert inEventLoop();
+        return new ArrayList<AbstractNioChannel>(Arrays.asList(channelSlots).subList(0, channelSlotCount));
+    }
+
+    /**
+     * Adds a newly registered {@link AbstractNioChannel} to the slot table.
+     */
+    void addChannel(AbstractNioChannel ch) {
+        assert inEventLoop();
+        if (channelSlotCount == channelSlots.length) {
+            channelSlots = Arrays.copyOf(channelSlots, channelSlotCount << 1);
+        }
+        ch.slot = channelSlotCount;
+        channelSlots[channelSlotCount++] = ch;
+        registeredChannels = channelSlotCount;
+    }
+
+    /**
+     * Removes a deregistered {@link AbstractNioChannel} from the slot table. The last channel moves into the freed
+     * slot, so the table stays dense.
+     */
+    void removeChannel(AbstractNioChannel ch) {
+        assert inEventLoop();
+        int slot = ch.slot;
+        if (slot < 0 || slot >= channelSlotCount || channelSlots[slot] != ch) {
+            return;
+        }
+        int last = --channelSlotCount;
+        AbstractNioChannel moved = channelSlots[last];
+        channelSlots[slot] = moved;
+        moved.slot = slot;
+        channelSlots[last] = null;
+        ch.slot = -1;
+        registeredChannels = last;
     }
 
     private void rebuildSelector0() {
-        final Selector oldSelector = selector;
+        final Selector oldSelector = unwrappedSelector;
         final SelectorTuple newSelectorTuple;
 
-        if (oldSelector == null) {
+        if (oldSelector == null || migratingSelector != null) {
+            // Nothing to rebuild yet, or the keys are still moved to the Selector which was rebuilt before.
             return;
         }
 
@@ -385,23 +620,53 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
             return;
         }
 
-        // Register all channels to the new Selector.
-        int nChannels = 0;
-        for (SelectionKey key: oldSelector.keys()) {
+        // New registrations go to the new Selector right away. The existing keys are moved in batches by the next
+        // loop iterations, which also poll the old Selector until it is empty, so thousands of channels do not stall
+        // the event loop in a single pass.
+        migratingSelector = oldSelector;
+        migratingKeys = oldSelector.keys().toArray(new SelectionKey[0]);
+        migratedKeys = 0;
+        migratedChannels = 0;
+        selector = newSelectorTuple.selector;
+        unwrappedSelector = newSelectorTuple.unwrappedSelector;
+        migrateSelectorKeys(SELECTOR_MIGRATION_BATCH_SIZE);
+    }
+
+    /**
+     * Processes the keys which are still ready on the old {@link Selector} and moves the next batch of keys to the
+     * new one.
+     */
+    private void continueSelectorMigration() {
+        try {
+            migratingSelector.selectNow(migratingKeyProcessor);
+        } catch (IOException e) {
+            logger.warn("Failed to poll the old Selector.", e);
+        }
+        if (migratingSelector != null) {
+            migrateSelectorKeys(SELECTOR_MIGRATION_BATCH_SIZE);
+        }
+    }
+
+    private void migrateSelectorKeys(int maxKeys) {
+        final SelectionKey[] keys = migratingKeys;
+        final int end = keys.length - migratedKeys <= maxKeys ? keys.length : migratedKeys + maxKeys;
+        for (int i = migratedKeys; i < end; i++) {
+            final SelectionKey key = keys[i];
+            keys[i] = null;
             Object a = key.attachment();
             try {
-                if (!key.isValid() || key.channel().keyFor(newSelectorTuple.unwrappedSelector) != null) {
+                if (!key.isValid() || key.channel().keyFor(unwrappedSelector) != null) {
                     continue;
                 }
 
                 int interestOps = key.interestOps();
                 key.cancel();
-                SelectionKey newKey = key.channel().register(newSelectorTuple.unwrappedSelector, interestOps, a);
+                SelectionKey newKey = key.channel().register(unwrappedSelector, interestOps, a);
                 if (a instanceof AbstractNioChannel) {
                     // Update SelectionKey
                     ((AbstractNioChannel) a).selectionKey = newKey;
                 }
-                nChannels ++;
+                migratedChannels ++;
             } catch (Exception e) {
                 logger.warn("Failed to re-register a Channel to the new Selector.", e);
                 if (a instanceof AbstractNioChannel) {
@@ -414,9 +679,16 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                 }
             }
         }
+        migratedKeys = end;
+        if (end == keys.length) {
+            finishSelectorMigration();
+        }
+    }
 
-        selector = newSelectorTuple.selector;
-        unwrappedSelector = newSelectorTuple.unwrappedSelector;
+    private void finishSelectorMigration() {
+        final Selector oldSelector = migratingSelector;
+        migratingSelector = null;
+        migratingKeys = null;
 
         try {
             // time to close the old selector as everything else is registered to the new one
@@ -427,17 +699,28 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
             }
         }
 
+        metrics().selectorRebuilt();
         if (logger.isInfoEnabled()) {
-            logger.info("Migrated " + nChannels + " channel(s) to the new Selector.");
+            logger.info("Migrated " + migratedChannels + " channel(s) to the new Selector.");
         }
     }
 
     @Override
     protected void run() {
         int selectCnt = 0;
+        loopThread = Thread.currentThread();
+        // LOOM PATCH: Count the event loop against the carrier capacity once it is known whether its thread is virtual
+        try {
+            ((LoomNioEventLoopGroup) parent()).pinningDetector().loopStarted(this);
+        } catch (IllegalStateException e) {
+            logger.error("Shutting down the event loop as it does not fit into the carrier capacity.", e);
+            // The first iteration closes the channels which were registered in the meantime.
+            shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        }
         for (;;) {
             try {
                 int strategy;
+                long blockedNanos = 0;
                 try {
                     strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                     switch (strategy) {
@@ -448,14 +731,35 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                         // fall-through to SELECT since the busy-wait is not supported with NIO
 
                     case SelectStrategy.SELECT:
-                        long curDeadlineNanos = nextScheduledTaskDeadlineNanos();
+                        if (lastIoEndNanos != 0 && ioRatioController != null) {
+                            // Keys which are still ready after they were processed are the read backlog which the
+                            // adaptive ioRatio measures, see below.
+                            strategy = selectNow();
+                            if (strategy > 0) {
+                                break;
+                            }
+                        }
+                        if (runStolenTasks()) {
+                            // We helped a busy sibling instead of blocking, so only poll the selector.
+                            strategy = selectNow();
+                            break;
+                        }
+                        if (migratingSelector != null) {
+                            // Keys are still registered with the old Selector, which is polled below.
+                            strategy = selectNow();
+                            break;
+                        }
+                        long curDeadlineNanos = nextTimerDeadlineNanos();
                         if (curDeadlineNanos == -1L) {
                             curDeadlineNanos = NONE; // nothing on the calendar
                         }
                         nextWakeupNanos.set(curDeadlineNanos);
                         try {
                             if (!hasTasks()) {
+                                final long selectStartTime = System.nanoTime();
                                 strategy = select(curDeadlineNanos);
+                                blockedNanos = System.nanoTime() - selectStartTime;
+                                metrics().recordSelectTime(blockedNanos);
                             }
                         } finally {
                             // This update is just to help block unnecessary selector wakeups
@@ -475,6 +779,20 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                 }
 
                 selectCnt++;
+                final int selected = Math.max(strategy, 0);
+                lastSelectedKeys = selected;
+                metrics().recordSelectedKeys(selected);
+                final long pollNanos = System.nanoTime();
+                if (strategy > 0 && blockedNanos == 0 && lastIoEndNanos != 0) {
+                    // The poll did not block, so the keys were still ready after the last processing or became
+                    // ready while tasks ran. This is the read backlog, it waited since the processing ended.
+                    metrics().recordIoLatency(pollNanos - lastIoEndNanos);
+                }
+                if (pollNanos - healthWindowStartNanos >= SELECTOR_HEALTH_WINDOW_NANOS) {
+                    metrics().prematureSelectorReturnsLastSecond(prematureReturnsInWindow);
+                    healthWindowStartNanos = pollNanos;
+                    prematureReturnsInWindow = 0;
+                }
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
@@ -482,7 +800,11 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                 if (ioRatio == 100) {
                     try {
                         if (strategy > 0) {
+                            final long ioStartTime = System.nanoTime();
                             processSelectedKeys();
+                            final long ioEndTime = System.nanoTime();
+                            recordIoTime(ioEndTime - ioStartTime, ioEndTime);
+                            lastIoEndNanos = ioEndTime;
                         }
                     } finally {
                         // Ensure we always run tasks.
@@ -494,21 +816,50 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
                         processSelectedKeys();
                     } finally {
                         // Ensure we always run tasks.
-                        final long ioTime = System.nanoTime() - ioStartTime;
+                        final long ioEndTime = System.nanoTime();
+                        final long ioTime = ioEndTime - ioStartTime;
+                        recordIoTime(ioTime, ioEndTime);
+                        lastIoEndNanos = ioEndTime;
                         ranTasks = runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 } else {
                     ranTasks = runAllTasks(0); // This will run the minimum number of tasks
                 }
+                if (strategy <= 0) {
+                    // Nothing was ready, let the average decay instead of keeping the last busy value.
+                    recordIoTime(0, pollNanos);
+                    lastIoEndNanos = 0;
+                }
+
+                final IoRatioController ioRatioController = this.ioRatioController;
+                if (ioRatioController != null) {
+                    adjustIoRatio(ioRatioController, System.nanoTime());
+                }
+
+                final boolean migrating = migratingSelector != null;
+                if (migrating) {
+                    continueSelectorMigration();
+                }
+                if (publishedReadyEvents != readyEvents) {
+                    publishedReadyEvents = readyEvents;
+                }
+                accumulatedLoad += selected + pendingTasks();
+                publishedLoad = accumulatedLoad;
+                publishedLoadIterations = ++loadIterations;
 
-                if (ranTasks || strategy > 0) {
+                if (ranTasks || strategy > 0 || migrating) {
                     if (selectCnt > MIN_PREMATURE_SELECTOR_RETURNS && logger.isDebugEnabled()) {
                         logger.debug("Selector.select() returned prematurely {} times in a row for Selector {}.",
                                 selectCnt - 1, selector);
                     }
                     selectCnt = 0;
-                } else if (unexpectedSelectorWakeup(selectCnt)) { // Unexpected wakeup (unusual case)
-                    selectCnt = 0;
+                } else {
+                    metrics().prematureSelectorReturn();
+                    if (unexpectedSelectorWakeup(selectCnt)) { // Unexpected wakeup (unusual case)
+                        selectCnt = 0;
+                    } else if (selectorUnhealthy()) {
+                        selectCnt = 0;
+                    }
                 }
             } catch (CancelledKeyException e) {
                 // Harmless exception - log anyway
@@ -538,6 +889,36 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
         }
     }
 
+    private void recordIoTime(long ioTime, long nowNanos) {
+        // Exponentially weighted moving average with a weight of 1/8 for the latest sample.
+        long avg = ioTimeNanos;
+        ioTimeNanos = avg + ((ioTime - avg) >> 3);
+        ioTimeSampledNanos = nowNanos;
+    }
+
+    @Override
+    public long ioTimeNanos() {
+        long avg = ioTimeNanos;
+        long halfLives = (System.nanoTime() - ioTimeSampledNanos) / IO_TIME_HALF_LIFE_NANOS;
+        return halfLives <= 0 ? avg : halfLives >= Long.SIZE - 1 ? 0 : avg >> halfLives;
+    }
+
+    /**
+     * Rebuilds the {@link Selector} before it spins the carrier thread if it returns prematurely too often, although
+     * the returns are interleaved with real work and so never reach {@code SELECTOR_AUTO_REBUILD_THRESHOLD} in a row.
+     */
+    private boolean selectorUnhealthy() {
+        if (SELECTOR_PREMATURE_RETURNS_PER_SECOND == 0 ||
+                ++prematureReturnsInWindow < SELECTOR_PREMATURE_RETURNS_PER_SECOND) {
+            return false;
+        }
+        logger.warn("Selector.select() returned prematurely {} times within a second; rebuilding Selector {}.",
+                prematureReturnsInWindow, selector);
+        prematureReturnsInWindow = 0;
+        rebuildSelector();
+        return true;
+    }
+
     // returns true if selectCnt should be reset
     private boolean unexpectedSelectorWakeup(int selectCnt) {
         if (Thread.interrupted()) {
@@ -587,6 +968,13 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
 
     @Override
     protected void cleanup() {
+        if (migratingSelector != null) {
+            try {
+                migratingSelector.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a selector.", e);
+            }
+        }
         try {
             selector.close();
         } catch (IOException e) {
@@ -645,6 +1033,7 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
     }
 
     private void processSelectedKeysOptimized() {
+        final boolean hasNioTasks = this.hasNioTasks;
         for (int i = 0; i < selectedKeys.size; ++i) {
             final SelectionKey k = selectedKeys.keys[i];
             // null out entry in the array to allow to have it GC'ed once the Channel close
@@ -653,7 +1042,10 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
 
             final Object a = k.attachment();
 
-            if (a instanceof AbstractNioChannel) {
+            if (!hasNioTasks) {
+                // Hot path: only channels of the slot table are registered.
+                processSelectedKey(k, (AbstractNioChannel) a);
+            } else if (a instanceof AbstractNioChannel) {
                 processSelectedKey(k, (AbstractNioChannel) a);
             } else {
                 @SuppressWarnings("unchecked")
@@ -695,6 +1087,8 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
             return;
         }
 
+        ch.readyEvents++;
+        readyEvents++;
         try {
             int readyOps = k.readyOps();
             // We first need to call finishConnect() before try to trigger a read(...) or write(...) as otherwise
@@ -752,6 +1146,10 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
     }
 
     private void closeAll() {
+        if (migratingSelector != null) {
+            // Move the remaining keys at once, so all channels are closed below.
+            migrateSelectorKeys(Integer.MAX_VALUE);
+        }
         selectAgain();
         Set<SelectionKey> keys = selector.keys();
         Collection<AbstractNioChannel> channels = new ArrayList<AbstractNioChannel>(keys.size());
@@ -782,11 +1180,41 @@ public final class LoomNioEventLoop extends VirtualThreadEventLoop implements IN
 
     @Override
     protected void wakeup(boolean inEventLoop) {
-        if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
-            selector.wakeup();
+        if (!inEventLoop) {
+            if (nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+                metrics().wakeupIssued();
+                selector.wakeup();
+            } else {
+                metrics().wakeupSuppressed();
+            }
         }
     }
 
+    /**
+     * Returns the number of times {@link Selector#wakeup()} was called to wake up this event loop.
+     */
+    public long selectorWakeups() {
+        return metrics().getWakeupsIssued();
+    }
+
+    @Override
+    protected NioEventLoopMetrics newMetrics() {
+        return new NioEventLoopMetrics(this);
+    }
+
+    @Override
+    public NioEventLoopMetrics metrics() {
+        return (NioEventLoopMetrics) super.metrics();
+    }
+
+    /**
+     * Returns the {@link SelectStrategy} used by this event loop, for example to read the counters of an
+     * {@link AdaptiveSelectStrategy}.
+     */
+    public SelectStrategy selectStrategy() {
+        return selectStrategy;
+    }
+
     @Override
     protected boolean beforeScheduledTaskSubmitted(long deadlineNanos) {
         // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
@@ -19,8 +19,11 @@ import java.nio.channels.Selector;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultSelectStrategyFactory;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopTaskQueueFactory;
@@ -33,7 +36,7 @@ import io.netty.util.concurrent.EventExecutorChooserFactory;
 import io.netty.util.concurrent.LoomRejectedExecutionHandler;
 import io.netty.util.concurrent.LoomRejectedExecutionHandlers;
 import io.netty.util.concurrent.RejectedExecutionHandler;
-import io.netty.util.concurrent.RejectedExecutionHandlers;
+import io.netty.util.internal.ObjectUtil;
 
 /**
  * {@link MultithreadEventLoopGroup} implementations which is used for NIO
@@ -41,6 +44,8 @@ import io.netty.util.concurrent.RejectedExecutionHandlers;
  */
 public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
 
+    // Not initialized in the declaration as newChild(...) is already called by the super constructor.
+    private CarrierPinningDetector pinningDetector;
 
     /**
      * Create a new instance using the default number of threads, the default {@link ThreadFactory} and
@@ -74,6 +79,17 @@ public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
         this(nThreads, threadFactory, SelectorProvider.provider());
     }
 
+    /**
+     * Create a new instance using the specified number of threads, the given {@link ThreadFactory}, the
+     * {@link SelectorProvider} which is returned by {@link SelectorProvider#provider()} and the given configuration of
+     * the {@link CarrierPinningDetector}.
+     */
+    public LoomNioEventLoopGroup(int nThreads, ThreadFactory threadFactory,
+                                 CarrierPinningDetector.Config pinningConfig) {
+        super(nThreads, threadFactory, SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE,
+                LoomRejectedExecutionHandlers.reject(), ObjectUtil.checkNotNull(pinningConfig, "pinningConfig"));
+    }
+
     public LoomNioEventLoopGroup(int nThreads, Executor executor) {
         this(nThreads, executor, SelectorProvider.provider());
     }
@@ -106,7 +122,7 @@ public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
                              final SelectorProvider selectorProvider,
                              final SelectStrategyFactory selectStrategyFactory) {
         super(nThreads, executor, chooserFactory, selectorProvider, selectStrategyFactory,
-                RejectedExecutionHandlers.reject());
+                LoomRejectedExecutionHandlers.reject());
     }
 
     public LoomNioEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory,
@@ -155,7 +171,18 @@ public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
      */
     public void setIoRatio(int ioRatio) {
         for (EventExecutor e: this) {
-            ((NioEventLoop) e).setIoRatio(ioRatio);
+            ((LoomNioEventLoop) e).setIoRatio(ioRatio);
+        }
+    }
+
+    /**
+     * Lets the child event loops adjust their ioRatio from the observed task queue and I/O latencies.
+     *
+     * @see LoomNioEventLoop#setAdaptiveIoRatio(long, long, TimeUnit)
+     */
+    public void setAdaptiveIoRatio(long taskLatencyTarget, long ioLatencyTarget, TimeUnit unit) {
+        for (EventExecutor e: this) {
+            ((LoomNioEventLoop) e).setAdaptiveIoRatio(taskLatencyTarget, ioLatencyTarget, unit);
         }
     }
 
@@ -165,11 +192,62 @@ public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
      */
     public void rebuildSelectors() {
         for (EventExecutor e: this) {
-            ((NioEventLoop) e).rebuildSelector();
+            ((LoomNioEventLoop) e).rebuildSelector();
         }
     }
 
-	
+    /**
+     * Moves the given registered {@link Channel} to the given {@link LoomNioEventLoop}, which does not need to be part
+     * of this group. Unlike {@link Channel#deregister()} followed by a new registration the channel stays registered,
+     * keeps its pipeline, its pending writes and its pending read, and does not miss readiness events. Can be called
+     * from any thread.
+     *
+     * @return the {@link ChannelFuture} which is notified once {@code target} serves the channel.
+     */
+    public ChannelFuture migrate(Channel channel, EventLoop target) {
+        ObjectUtil.checkNotNull(channel, "channel");
+        if (!(channel instanceof AbstractNioChannel)) {
+            return channel.newFailedFuture(new IllegalArgumentException(
+                    "unsupported channel type: " + channel.getClass().getName()));
+        }
+        if (!(target instanceof LoomNioEventLoop)) {
+            return channel.newFailedFuture(new IllegalArgumentException(
+                    "incompatible event loop type: " + (target == null ? null : target.getClass().getName())));
+        }
+        if (!channel.isRegistered()) {
+            return channel.newFailedFuture(new IllegalStateException("channel not registered to an event loop"));
+        }
+        ChannelPromise promise = channel.newPromise();
+        migrate0((AbstractNioChannel) channel, (LoomNioEventLoop) target, promise);
+        return promise;
+    }
+
+    private static void migrate0(final AbstractNioChannel channel, final LoomNioEventLoop target,
+                                 final ChannelPromise promise) {
+        EventLoop current = channel.eventLoop();
+        if (current.inEventLoop()) {
+            channel.migrate(target, promise);
+            return;
+        }
+        try {
+            current.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The channel may have been moved by someone else in the meantime.
+                    migrate0(channel, target, promise);
+                }
+            });
+        } catch (Throwable t) {
+            promise.tryFailure(t);
+        }
+    }
+
+    /**
+     * Returns the {@link CarrierPinningDetector} which watches the child event loops for pinned carrier threads.
+     */
+    public CarrierPinningDetector pinningDetector() {
+        return pinningDetector;
+    }
 
 	@Override
 	protected EventLoop newChild(Executor executor, Object... args) throws Exception {
@@ -180,13 +258,26 @@ public class LoomNioEventLoopGroup extends VirtualThreadEventLoopGroup {
 		EventLoopTaskQueueFactory tailTaskQueueFactory = null;
 
 		int argsLength = args.length;
+		// LOOM PATCH: The configuration of the pinning detector may be passed as last argument
+		CarrierPinningDetector.Config pinningConfig = null;
+		if (argsLength > 3 && args[argsLength - 1] instanceof CarrierPinningDetector.Config) {
+			pinningConfig = (CarrierPinningDetector.Config) args[--argsLength];
+		}
 		if (argsLength > 3) {
 			taskQueueFactory = (EventLoopTaskQueueFactory) args[3];
 		}
 		if (argsLength > 4) {
 			tailTaskQueueFactory = (EventLoopTaskQueueFactory) args[4];
 		}
-		return new LoomNioEventLoop(this, executor, selectorProvider, selectStrategyFactory.newSelectStrategy(),
-				rejectedExecutionHandler, taskQueueFactory, tailTaskQueueFactory);
+		LoomNioEventLoop loop = new LoomNioEventLoop(this, executor, selectorProvider,
+				selectStrategyFactory.newSelectStrategy(), rejectedExecutionHandler, taskQueueFactory,
+				tailTaskQueueFactory);
+		// LOOM PATCH: Sample the loop for pinning, the carrier capacity is checked once its thread starts
+		if (pinningDetector == null) {
+			pinningDetector = new CarrierPinningDetector(this,
+					pinningConfig != null ? pinningConfig : new CarrierPinningDetector.Config());
+		}
+		pinningDetector.register(loop);
+		return loop;
 	}
 }
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.LoomRejectedExecutionHandler;
+import io.netty.util.concurrent.VirtualThreadEventLoop;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * {@link VirtualThreadEventLoop} whose channels are registered to the {@link Selector} of a shared {@link NioPoller}.
+ * The event loop never selects by itself: it parks in its task queue until the poller hands it a batch of selected
+ * keys or a task is submitted, so its virtual thread never pins a carrier thread.
+ */
+public final class LoomPolledNioEventLoop extends VirtualThreadEventLoop implements INioEventLoop {
+
+    private final NioPoller poller;
+    private final Set<AbstractNioChannel> channels =
+            Collections.newSetFromMap(PlatformDependent.<AbstractNioChannel, Boolean>newConcurrentHashMap());
+
+    // The batch the poller currently fills, only accessed by the poller.
+    private KeyBatch nextBatch;
+    // Set when interest ops were added, which the poller only sees after a wakeup. Only accessed by the event loop.
+    private boolean interestOpsAdded;
+
+    LoomPolledNioEventLoop(LoomPolledNioEventLoopGroup parent, Executor executor, NioPoller poller,
+                           LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, true, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+        this.poller = poller;
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return super.register(promise).addListener(trackChannel);
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        return super.register(channel, promise).addListener(trackChannel);
+    }
+
+    private final ChannelFutureListener trackChannel = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (future.isSuccess() && future.channel() instanceof AbstractNioChannel) {
+                channels.add((AbstractNioChannel) future.channel());
+            }
+        }
+    };
+
+    /**
+     * Adds a selected key whose interest ops the poller cleared to the next batch. Called by the poller, returns
+     * {@code true} if it is the first key of the batch.
+     */
+    boolean addToBatch(SelectionKey k, int interestOps) {
+        KeyBatch batch = nextBatch;
+        if (batch == null) {
+            nextBatch = new KeyBatch();
+            nextBatch.add(k, interestOps);
+            return true;
+        }
+        batch.add(k, interestOps);
+        return false;
+    }
+
+    /**
+     * Hands the batch to the event loop. Called by the poller.
+     */
+    void dispatchBatch() {
+        execute(nextBatch);
+        nextBatch = null;
+    }
+
+    /**
+     * Restores the interest ops of a batch which was not accepted by the event loop. Called by the poller.
+     */
+    void releaseBatch() {
+        KeyBatch batch = nextBatch;
+        nextBatch = null;
+        if (batch != null) {
+            for (int i = 0; i < batch.size; i++) {
+                restoreInterestOps(batch.keys[i], batch.interestOps[i]);
+            }
+        }
+    }
+
+    /**
+     * Tells the event loop that interest ops of one of its keys were added, so it wakes up the poller.
+     */
+    void interestOpsAdded() {
+        assert inEventLoop();
+        interestOpsAdded = true;
+    }
+
+    private void processBatch(KeyBatch batch) {
+        for (int i = 0; i < batch.size; i++) {
+            final SelectionKey k = batch.keys[i];
+            batch.keys[i] = null;
+            int readyOps = processSelectedKey(k, (AbstractNioChannel) k.attachment());
+            // The ready ops were handled and are re-added by the channel if it is still interested, for example by
+            // beginRead() after a read or by setOpWrite() after an incomplete write.
+            restoreInterestOps(k, batch.interestOps[i] & ~readyOps);
+        }
+    }
+
+    private void restoreInterestOps(SelectionKey k, int interestOps) {
+        if (interestOps == 0) {
+            return;
+        }
+        try {
+            k.interestOpsOr(interestOps);
+            interestOpsAdded = true;
+        } catch (CancelledKeyException ignored) {
+            // The channel was closed or deregistered.
+        }
+    }
+
+    /**
+     * Processes the given key and returns its ready ops.
+     */
+    private int processSelectedKey(SelectionKey k, AbstractNioChannel ch) {
+        final AbstractNioChannel.NioUnsafe unsafe = ch.unsafe();
+        if (!k.isValid()) {
+            final EventLoop eventLoop;
+            try {
+                eventLoop = ch.eventLoop();
+            } catch (Throwable ignored) {
+                return 0;
+            }
+            // Only close ch if ch is still registered to this EventLoop.
+            // See https://github.com/netty/netty/issues/5125
+            if (eventLoop == this) {
+                unsafe.close(unsafe.voidPromise());
+            }
+            return 0;
+        }
+
+        int readyOps = 0;
+        try {
+            readyOps = k.readyOps();
+            if ((readyOps & SelectionKey.OP_CONNECT) != 0) {
+                // remove OP_CONNECT as otherwise Selector.select(..) will always return without blocking
+                // The NioPoller may clear the interest set concurrently, so update it atomically.
+                k.interestOpsAnd(~SelectionKey.OP_CONNECT);
+
+                unsafe.finishConnect();
+            }
+
+            if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+                ch.unsafe().forceFlush();
+            }
+
+            if ((readyOps & (SelectionKey.OP_READ | SelectionKey.OP_ACCEPT)) != 0 || readyOps == 0) {
+                unsafe.read();
+            }
+        } catch (CancelledKeyException ignored) {
+            unsafe.close(unsafe.voidPromise());
+        }
+        return readyOps;
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            Runnable task = takeTask();
+            if (task != null) {
+                safeExecute(task);
+                runAllTasks();
+                updateLastExecutionTime();
+                if (interestOpsAdded) {
+                    // The poller only sees added interest ops in its next select.
+                    interestOpsAdded = false;
+                    poller.wakeup();
+                }
+            }
+
+            if (isShuttingDown()) {
+                closeAll();
+                if (confirmShutdown()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        List<AbstractNioChannel> channels = new ArrayList<AbstractNioChannel>(this.channels);
+        for (AbstractNioChannel ch: channels) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        poller.eventLoopRemoved();
+    }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    @Override
+    public void cancel(SelectionKey key) {
+        key.cancel();
+        channels.remove(key.attachment());
+        poller.wakeup();
+    }
+
+    /**
+     * Waits until the poller flushed the cancelled keys and always returns {@code 0}, as the selected keys are
+     * processed by the poller.
+     */
+    @Override
+    public int selectNow() throws IOException {
+        assert inEventLoop();
+        poller.awaitSelect();
+        return 0;
+    }
+
+    /**
+     * Returns the {@link Selector} of the shared poller.
+     */
+    @Override
+    public Selector unwrappedSelector() {
+        return poller.selector();
+    }
+
+    /**
+     * Selected keys of one poller cycle together with the interest ops the poller cleared.
+     */
+    private final class KeyBatch implements Runnable {
+        SelectionKey[] keys = new SelectionKey[8];
+        int[] interestOps = new int[8];
+        int size;
+
+        void add(SelectionKey k, int ops) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+                interestOps = Arrays.copyOf(interestOps, size << 1);
+            }
+            keys[size] = k;
+            interestOps[size++] = ops;
+        }
+
+        @Override
+        public void run() {
+            processBatch(this);
+        }
+    }
+}
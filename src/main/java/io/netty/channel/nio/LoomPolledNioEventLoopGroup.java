@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.VirtualThreadEventLoopGroup;
+import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.LoomRejectedExecutionHandler;
+import io.netty.util.concurrent.LoomRejectedExecutionHandlers;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+
+/**
+ * {@link VirtualThreadEventLoopGroup} of {@link LoomPolledNioEventLoop}s which share a few {@link NioPoller} platform
+ * threads that own the {@link java.nio.channels.Selector}s.
+ * <p>
+ * Unlike the {@link LoomNioEventLoop}s of a {@link LoomNioEventLoopGroup} the event loops do not block in
+ * {@link java.nio.channels.Selector#select()} and therefore do not pin a carrier thread each, so a group can consist
+ * of thousands of event loops. The event loops are distributed evenly over the pollers. The default number of
+ * pollers is taken from {@code -Dio.netty.loom.pollers} and defaults to an eighth of the available processors.
+ */
+public class LoomPolledNioEventLoopGroup extends VirtualThreadEventLoopGroup {
+
+    private static final int DEFAULT_POLLERS = Math.max(1,
+            SystemPropertyUtil.getInt("io.netty.loom.pollers", NettyRuntime.availableProcessors() / 8));
+
+    private final NioPoller[] pollers;
+
+    /**
+     * Create a new instance using the default number of event loops and pollers.
+     */
+    public LoomPolledNioEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new instance using the specified number of event loops and the default number of pollers.
+     */
+    public LoomPolledNioEventLoopGroup(int nThreads) {
+        this(nThreads, (ThreadFactory) null);
+    }
+
+    /**
+     * Create a new instance using the specified number of event loops, the given {@link ThreadFactory} and the
+     * default number of pollers.
+     */
+    public LoomPolledNioEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, DEFAULT_POLLERS);
+    }
+
+    /**
+     * Create a new instance using the specified number of event loops, the given {@link ThreadFactory} and the
+     * specified number of pollers.
+     */
+    public LoomPolledNioEventLoopGroup(int nThreads, ThreadFactory threadFactory, int nPollers) {
+        this(nThreads, threadFactory == null ? null : new ThreadPerTaskExecutor(threadFactory), nPollers,
+                SelectorProvider.provider(), LoomRejectedExecutionHandlers.reject());
+    }
+
+    /**
+     * @param nThreads the number of event loops that will be used by this instance.
+     * @param executor the Executor to use, or {@code null} if default one should be used.
+     * @param nPollers the number of poller threads which own the {@link java.nio.channels.Selector}s.
+     * @param selectorProvider the {@link SelectorProvider} to use.
+     * @param rejectedExecutionHandler the {@link LoomRejectedExecutionHandler} to use.
+     */
+    public LoomPolledNioEventLoopGroup(int nThreads, Executor executor, int nPollers,
+                                       SelectorProvider selectorProvider,
+                                       LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        this(nThreads, executor, NioPoller.newPollers(ObjectUtil.checkPositive(nPollers, "nPollers"),
+                ObjectUtil.checkNotNull(selectorProvider, "selectorProvider")), rejectedExecutionHandler);
+    }
+
+    private LoomPolledNioEventLoopGroup(int nThreads, Executor executor, NioPoller[] pollers,
+                                        LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        super(nThreads, executor, pollers, rejectedExecutionHandler);
+        this.pollers = pollers;
+        terminationFuture().addListener(new FutureListener<Object>() {
+            @Override
+            public void operationComplete(Future<Object> future) {
+                for (NioPoller poller: LoomPolledNioEventLoopGroup.this.pollers) {
+                    poller.shutdown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of poller threads.
+     */
+    public int pollers() {
+        return pollers.length;
+    }
+
+    @Override
+    protected EventLoop newChild(Executor executor, Object... args) throws Exception {
+        NioPoller[] pollers = (NioPoller[]) args[0];
+        LoomRejectedExecutionHandler rejectedExecutionHandler = (LoomRejectedExecutionHandler) args[1];
+        return new LoomPolledNioEventLoop(this, executor, NioPoller.assign(pollers), rejectedExecutionHandler);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.io.IOException;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.util.concurrent.VirtualThreadEventLoop;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * {@link VirtualThreadEventLoop} which serves exactly one {@link AbstractNioChannel} at a time. The underlying
+ * {@link SelectableChannel} is switched to blocking mode and no {@link Selector} is involved at all. A dedicated
+ * reader thread blocks in {@link ScatteringByteChannel#read(java.nio.ByteBuffer)} and hands the received buffers
+ * over to this event loop, which is the only thread that ever touches the {@link ChannelPipeline}. When both run
+ * on virtual threads the JDK poller parks and unparks them, so idle connections cost no selector wakeups.
+ */
+public class LoomThreadPerChannelEventLoop extends VirtualThreadEventLoop implements INioEventLoop {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(LoomThreadPerChannelEventLoop.class);
+
+    private final LoomThreadPerChannelEventLoopGroup parent;
+    private Channel ch;
+
+    public LoomThreadPerChannelEventLoop(LoomThreadPerChannelEventLoopGroup parent) {
+        super(parent, parent.executor, true);
+        this.parent = parent;
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return super.register(promise).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    ch = future.channel();
+                } else {
+                    deregister();
+                }
+            }
+        });
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        return super.register(channel, promise).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    ch = future.channel();
+                } else {
+                    deregister();
+                }
+            }
+        });
+    }
+
+    /**
+     * Switches the {@link SelectableChannel} of the given {@link AbstractNioChannel} into blocking mode and starts
+     * its reader thread. Called by {@link AbstractNioChannel#doRegister()} from within this event loop.
+     */
+    SelectionKey attach(AbstractNioChannel channel) throws IOException {
+        assert inEventLoop();
+        SelectableChannel javaChannel = channel.javaChannel();
+        if (!(javaChannel instanceof ScatteringByteChannel)) {
+            throw new ChannelException("unsupported channel type: " + javaChannel.getClass().getName() +
+                    " (expected: " + ScatteringByteChannel.class.getSimpleName() + ')');
+        }
+        javaChannel.configureBlocking(true);
+        BlockingSelectionKey key = new BlockingSelectionKey(javaChannel);
+        key.attach(channel);
+        parent.readerThreadFactory.newThread(new ChannelReader(channel, key)).start();
+        return key;
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            Runnable task = takeTask();
+            if (task != null) {
+                safeExecute(task);
+                updateLastExecutionTime();
+            }
+
+            Channel ch = this.ch;
+            if (isShuttingDown()) {
+                if (ch != null) {
+                    ch.unsafe().close(ch.unsafe().voidPromise());
+                }
+                if (confirmShutdown()) {
+                    break;
+                }
+            } else {
+                if (ch != null) {
+                    // Handle deregistration
+                    if (!ch.isRegistered()) {
+                        runAllTasks();
+                        deregister();
+                    }
+                }
+            }
+        }
+    }
+
+    protected void deregister() {
+        ch = null;
+        parent.activeChildren.remove(this);
+        parent.idleChildren.add(this);
+    }
+
+    @Override
+    public int registeredChannels() {
+        return 1;
+    }
+
+    @Override
+    public void cancel(SelectionKey key) {
+        key.cancel();
+    }
+
+    /**
+     * Always returns {@code 0} as the channels of this event loop are not multiplexed.
+     */
+    @Override
+    public int selectNow() throws IOException {
+        return 0;
+    }
+
+    /**
+     * Always returns {@code null} as the channels of this event loop are not multiplexed.
+     */
+    @Override
+    public Selector unwrappedSelector() {
+        return null;
+    }
+
+    /**
+     * Reads from the blocking {@link SelectableChannel} once per requested read. Every received {@link ByteBuf} is
+     * passed to the event loop which fires it through the {@link ChannelPipeline}. The next read is only attempted
+     * after {@link Channel#read()} re-added the read interest, which preserves the {@code autoRead} contract.
+     */
+    private final class ChannelReader implements Runnable {
+        private final AbstractNioChannel channel;
+        private final BlockingSelectionKey key;
+
+        ChannelReader(AbstractNioChannel channel, BlockingSelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            final ChannelConfig config = channel.config();
+            final ScatteringByteChannel in = (ScatteringByteChannel) channel.javaChannel();
+            final RecvByteBufAllocator.Handle allocHandle = channel.unsafe().recvBufAllocHandle();
+            for (;;) {
+                if (!key.awaitReadInterest()) {
+                    return;
+                }
+                key.clearReadInterest();
+
+                ByteBuf byteBuf = null;
+                try {
+                    allocHandle.reset(config);
+                    byteBuf = allocHandle.allocate(config.getAllocator());
+                    allocHandle.lastBytesRead(byteBuf.writeBytes(in, byteBuf.writableBytes()));
+                    if (allocHandle.lastBytesRead() <= 0) {
+                        byteBuf.release();
+                        byteBuf = null;
+                        execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                closeOnRead();
+                            }
+                        });
+                        return;
+                    }
+                    allocHandle.incMessagesRead(1);
+                    allocHandle.readComplete();
+
+                    final ByteBuf received = byteBuf;
+                    byteBuf = null;
+                    execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            fireChannelRead(received);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // The event loop is shutting down and will close the channel.
+                    return;
+                } catch (final Throwable cause) {
+                    if (byteBuf != null) {
+                        byteBuf.release();
+                    }
+                    try {
+                        execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                handleReadException(cause);
+                            }
+                        });
+                    } catch (RejectedExecutionException ignored) {
+                        // The event loop is shutting down and will close the channel.
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void fireChannelRead(ByteBuf byteBuf) {
+            if (!key.isValid()) {
+                // The channel was deregistered in the meantime.
+                byteBuf.release();
+                return;
+            }
+            channel.readPending = false;
+            ChannelPipeline pipeline = channel.pipeline();
+            pipeline.fireChannelRead(byteBuf);
+            pipeline.fireChannelReadComplete();
+        }
+
+        private void closeOnRead() {
+            if (channel.isOpen()) {
+                channel.unsafe().close(channel.unsafe().voidPromise());
+            }
+        }
+
+        private void handleReadException(Throwable cause) {
+            if (!channel.isOpen()) {
+                // Expected as the blocking read is aborted by closing the channel.
+                return;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("Blocking read failed for {}", channel, cause);
+            }
+            channel.pipeline().fireExceptionCaught(cause);
+            closeOnRead();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.AbstractEventExecutorGroup;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.DefaultVirtualThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ReadOnlyIterator;
+
+/**
+ * {@link EventLoopGroup} which creates one {@link LoomThreadPerChannelEventLoop} for each registered
+ * {@link AbstractNioChannel}. In contrast to the {@link LoomNioEventLoopGroup} the channels are not multiplexed
+ * through a {@link java.nio.channels.Selector} but use blocking I/O on virtual threads.
+ * <p>
+ * Only byte channels (e.g. accepted {@link io.netty.channel.socket.nio.NioSocketChannel}s) can be registered. The
+ * server channel still needs a selector based group, for example a {@link LoomNioEventLoopGroup}.
+ * <p>
+ * As every {@link EventLoop} belongs to exactly one {@link Channel} there is no event loop which could be handed out
+ * for arbitrary work, so {@link #next()} throws an {@link UnsupportedOperationException}. This also applies to the
+ * task submission methods inherited from {@link AbstractEventExecutorGroup}, which delegate to {@link #next()}:
+ * {@code execute}, {@code submit}, {@code schedule*} and {@code invoke*}. Submit such tasks to the event loop of a
+ * channel via {@link Channel#eventLoop()}, or to a separate {@link io.netty.util.concurrent.EventExecutorGroup}.
+ */
+public class LoomThreadPerChannelEventLoopGroup extends AbstractEventExecutorGroup implements EventLoopGroup {
+
+    private final int maxChannels;
+    final Executor executor;
+    final ThreadFactory readerThreadFactory;
+    final Set<EventLoop> activeChildren =
+            Collections.newSetFromMap(PlatformDependent.<EventLoop, Boolean>newConcurrentHashMap());
+    final Queue<EventLoop> idleChildren = new ConcurrentLinkedQueue<EventLoop>();
+    private final ChannelException tooManyChannels;
+
+    private volatile boolean shuttingDown;
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+    private final FutureListener<Object> childTerminationListener = new FutureListener<Object>() {
+        @Override
+        public void operationComplete(Future<Object> future) throws Exception {
+            // Inefficient, but works.
+            if (isTerminated()) {
+                terminationFuture.trySuccess(null);
+            }
+        }
+    };
+
+    /**
+     * Create a new {@link LoomThreadPerChannelEventLoopGroup} with no limit in place.
+     */
+    public LoomThreadPerChannelEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new {@link LoomThreadPerChannelEventLoopGroup}.
+     *
+     * @param maxChannels       the maximum number of channels to handle with this instance. Once you try to register
+     *                          a new {@link Channel} and the maximum is exceed it will throw an
+     *                          {@link ChannelException}. Use {@code 0} to use no limit
+     */
+    public LoomThreadPerChannelEventLoopGroup(int maxChannels) {
+        this(maxChannels, (ThreadFactory) null);
+    }
+
+    /**
+     * Create a new {@link LoomThreadPerChannelEventLoopGroup}.
+     *
+     * @param maxChannels       the maximum number of channels to handle with this instance. Once you try to register
+     *                          a new {@link Channel} and the maximum is exceed it will throw an
+     *                          {@link ChannelException}. Use {@code 0} to use no limit
+     * @param threadFactory     the {@link ThreadFactory} used to create the event loop and reader threads, or
+     *                          {@code null} if virtual threads should be used
+     */
+    public LoomThreadPerChannelEventLoopGroup(int maxChannels, ThreadFactory threadFactory) {
+        ObjectUtil.checkPositiveOrZero(maxChannels, "maxChannels");
+        if (threadFactory == null) {
+            threadFactory = new DefaultVirtualThreadFactory(getClass());
+        }
+        this.maxChannels = maxChannels;
+        this.readerThreadFactory = threadFactory;
+        this.executor = new ThreadPerTaskExecutor(threadFactory);
+        tooManyChannels = new ChannelException("too many channels (max: " + maxChannels + ')');
+    }
+
+    /**
+     * Creates a new {@link EventLoop}.
+     */
+    protected EventLoop newChild() throws Exception {
+        return new LoomThreadPerChannelEventLoop(this);
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return new ReadOnlyIterator<EventExecutor>(activeChildren.iterator());
+    }
+
+    /**
+     * Not supported, see the class documentation.
+     */
+    @Override
+    public EventLoop next() {
+        throw new UnsupportedOperationException("an event loop is bound to a single channel, use Channel.eventLoop()");
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        shuttingDown = true;
+
+        for (EventLoop l: activeChildren) {
+            l.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+        for (EventLoop l: idleChildren) {
+            l.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        // Notify the future if there was no children.
+        if (isTerminated()) {
+            terminationFuture.trySuccess(null);
+        }
+
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        shuttingDown = true;
+
+        for (EventLoop l: activeChildren) {
+            l.shutdown();
+        }
+        for (EventLoop l: idleChildren) {
+            l.shutdown();
+        }
+
+        // Notify the future if there was no children.
+        if (isTerminated()) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        for (EventLoop l: activeChildren) {
+            if (!l.isShuttingDown()) {
+                return false;
+            }
+        }
+        for (EventLoop l: idleChildren) {
+            if (!l.isShuttingDown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (EventLoop l: activeChildren) {
+            if (!l.isShutdown()) {
+                return false;
+            }
+        }
+        for (EventLoop l: idleChildren) {
+            if (!l.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (EventLoop l: activeChildren) {
+            if (!l.isTerminated()) {
+                return false;
+            }
+        }
+        for (EventLoop l: idleChildren) {
+            if (!l.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (EventLoop l: activeChildren) {
+            for (;;) {
+                long timeLeft = deadline - System.nanoTime();
+                if (timeLeft <= 0) {
+                    return isTerminated();
+                }
+                if (l.awaitTermination(timeLeft, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            }
+        }
+        for (EventLoop l: idleChildren) {
+            for (;;) {
+                long timeLeft = deadline - System.nanoTime();
+                if (timeLeft <= 0) {
+                    return isTerminated();
+                }
+                if (l.awaitTermination(timeLeft, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            }
+        }
+        return isTerminated();
+    }
+
+    @Override
+    public ChannelFuture register(Channel channel) {
+        ObjectUtil.checkNotNull(channel, "channel");
+        try {
+            EventLoop l = nextChild();
+            return l.register(new DefaultChannelPromise(channel, l));
+        } catch (Throwable t) {
+            return new DefaultChannelPromise(channel, GlobalEventExecutor.INSTANCE).setFailure(t);
+        }
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        try {
+            return nextChild().register(promise);
+        } catch (Throwable t) {
+            promise.setFailure(t);
+            return promise;
+        }
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        ObjectUtil.checkNotNull(channel, "channel");
+        try {
+            return nextChild().register(channel, promise);
+        } catch (Throwable t) {
+            promise.setFailure(t);
+            return promise;
+        }
+    }
+
+    private EventLoop nextChild() throws Exception {
+        if (shuttingDown) {
+            throw new RejectedExecutionException("shutting down");
+        }
+
+        EventLoop loop = idleChildren.poll();
+        if (loop == null) {
+            if (maxChannels > 0 && activeChildren.size() >= maxChannels) {
+                throw tooManyChannels;
+            }
+            loop = newChild();
+            loop.terminationFuture().addListener(childTerminationListener);
+        }
+        activeChildren.add(loop);
+        return loop;
+    }
+}
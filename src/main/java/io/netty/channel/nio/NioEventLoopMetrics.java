@@ -0,0 +1,219 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.util.concurrent.EventExecutorMetrics;
+import io.netty.util.concurrent.LongHistogram;
+
+/**
+ * {@link EventExecutorMetrics} of a {@link LoomNioEventLoop} which additionally records the time spent blocked in
+ * {@link java.nio.channels.Selector#select()}, the number of selected keys per loop iteration, premature selector
+ * returns, the premature returns within the last second as health signal of the selector, selector rebuilds and
+ * how many {@link java.nio.channels.Selector#wakeup()} calls were issued or suppressed because the event loop was
+ * already awake.
+ * <p>
+ * The I/O latency measures the read backlog: if a poll of the selector returned ready keys without blocking, the
+ * keys were still ready after the event loop processed them or became ready while it ran tasks, and the time since
+ * the end of that processing is recorded. Together with the decisions of the adaptive ioRatio
+ * (see {@link LoomNioEventLoop#setAdaptiveIoRatio(long, long, java.util.concurrent.TimeUnit)}) it shows how the time
+ * of the event loop is split between I/O and tasks.
+ */
+public final class NioEventLoopMetrics extends EventExecutorMetrics implements NioEventLoopMetricsMXBean {
+
+    private final LongHistogram selectTime = new LongHistogram();
+    private final LongHistogram selectedKeys = new LongHistogram();
+    private final LongAdder prematureSelectorReturns = new LongAdder();
+    private volatile int prematureSelectorReturnsLastSecond;
+    private final LongAdder selectorRebuilds = new LongAdder();
+    private final LongAdder wakeupsIssued = new LongAdder();
+    private final LongAdder wakeupsSuppressed = new LongAdder();
+    private final LongHistogram ioLatency = new LongHistogram();
+    private final LongAdder ioRatioIncreases = new LongAdder();
+    private final LongAdder ioRatioDecreases = new LongAdder();
+    private final AtomicInteger ioRatio = new AtomicInteger();
+
+    NioEventLoopMetrics(LoomNioEventLoop loop) {
+        super(loop);
+    }
+
+    void recordSelectTime(long nanos) {
+        selectTime.record(nanos);
+    }
+
+    void recordSelectedKeys(int keys) {
+        selectedKeys.record(keys);
+    }
+
+    void prematureSelectorReturn() {
+        prematureSelectorReturns.increment();
+    }
+
+    void prematureSelectorReturnsLastSecond(int returns) {
+        prematureSelectorReturnsLastSecond = returns;
+    }
+
+    void selectorRebuilt() {
+        selectorRebuilds.increment();
+    }
+
+    void wakeupIssued() {
+        wakeupsIssued.increment();
+    }
+
+    void wakeupSuppressed() {
+        wakeupsSuppressed.increment();
+    }
+
+    void recordIoLatency(long nanos) {
+        ioLatency.record(nanos);
+    }
+
+    /**
+     * Samples the task latency more often while the adaptive ioRatio needs it as signal.
+     */
+    void sampleForAdaptiveIoRatio(boolean adaptive) {
+        latencySampleInterval(adaptive ? IoRatioController.TASK_LATENCY_SAMPLE_INTERVAL
+                : DEFAULT_LATENCY_SAMPLE_INTERVAL);
+    }
+
+    void ioRatio(int ioRatio) {
+        this.ioRatio.set(ioRatio);
+    }
+
+    void ioRatioAdjusted(int oldIoRatio, int newIoRatio) {
+        if (newIoRatio > oldIoRatio) {
+            ioRatioIncreases.increment();
+        } else if (newIoRatio < oldIoRatio) {
+            ioRatioDecreases.increment();
+        }
+        ioRatio.set(newIoRatio);
+    }
+
+    /**
+     * Returns the histogram of the durations in nanoseconds the event loop was blocked in a select operation.
+     */
+    public LongHistogram selectTime() {
+        return selectTime;
+    }
+
+    /**
+     * Returns the histogram of the number of selected keys per loop iteration.
+     */
+    public LongHistogram selectedKeys() {
+        return selectedKeys;
+    }
+
+    /**
+     * Returns the histogram of the durations in nanoseconds keys which were ready without blocking waited since the
+     * event loop processed the selected keys the last time.
+     */
+    public LongHistogram ioLatency() {
+        return ioLatency;
+    }
+
+    @Override
+    public long getSelectTimeP50() {
+        return selectTime.percentile(50);
+    }
+
+    @Override
+    public long getSelectTimeP99() {
+        return selectTime.percentile(99);
+    }
+
+    @Override
+    public long[] getSelectTimeBuckets() {
+        return selectTime.snapshot();
+    }
+
+    @Override
+    public long getSelectedKeysP50() {
+        return selectedKeys.percentile(50);
+    }
+
+    @Override
+    public long getSelectedKeysP99() {
+        return selectedKeys.percentile(99);
+    }
+
+    @Override
+    public long[] getSelectedKeysBuckets() {
+        return selectedKeys.snapshot();
+    }
+
+    @Override
+    public long getPrematureSelectorReturns() {
+        return prematureSelectorReturns.sum();
+    }
+
+    @Override
+    public int getPrematureSelectorReturnsLastSecond() {
+        return prematureSelectorReturnsLastSecond;
+    }
+
+    @Override
+    public long getSelectorRebuilds() {
+        return selectorRebuilds.sum();
+    }
+
+    @Override
+    public long getWakeupsIssued() {
+        return wakeupsIssued.sum();
+    }
+
+    @Override
+    public long getWakeupsSuppressed() {
+        return wakeupsSuppressed.sum();
+    }
+
+    @Override
+    public long getIoLatencyP50() {
+        return ioLatency.percentile(50);
+    }
+
+    @Override
+    public long getIoLatencyP99() {
+        return ioLatency.percentile(99);
+    }
+
+    @Override
+    public long[] getIoLatencyBuckets() {
+        return ioLatency.snapshot();
+    }
+
+    @Override
+    public int getIoRatio() {
+        return ioRatio.get();
+    }
+
+    @Override
+    public long getIoRatioIncreases() {
+        return ioRatioIncreases.sum();
+    }
+
+    @Override
+    public long getIoRatioDecreases() {
+        return ioRatioDecreases.sum();
+    }
+
+    @Override
+    protected Class<? extends NioEventLoopMetricsMXBean> mxBeanInterface() {
+        return NioEventLoopMetricsMXBean.class;
+    }
+}
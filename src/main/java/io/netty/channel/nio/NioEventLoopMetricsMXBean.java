@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import io.netty.util.concurrent.EventExecutorMetricsMXBean;
+
+/**
+ * JMX view of the {@link NioEventLoopMetrics}. All durations are in nanoseconds.
+ */
+public interface NioEventLoopMetricsMXBean extends EventExecutorMetricsMXBean {
+
+    long getSelectTimeP50();
+
+    long getSelectTimeP99();
+
+    long[] getSelectTimeBuckets();
+
+    long getSelectedKeysP50();
+
+    long getSelectedKeysP99();
+
+    long[] getSelectedKeysBuckets();
+
+    long getPrematureSelectorReturns();
+
+    int getPrematureSelectorReturnsLastSecond();
+
+    long getSelectorRebuilds();
+
+    long getWakeupsIssued();
+
+    long getWakeupsSuppressed();
+
+    long getIoLatencyP50();
+
+    long getIoLatencyP99();
+
+    long[] getIoLatencyBuckets();
+
+    int getIoRatio();
+
+    long getIoRatioIncreases();
+
+    long getIoRatioDecreases();
+}
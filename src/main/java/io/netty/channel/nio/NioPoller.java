@@ -0,0 +1,201 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.netty.channel.ChannelException;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * A platform thread which owns a {@link Selector} shared by several {@link LoomPolledNioEventLoop}s.
+ * <p>
+ * Each cycle the poller blocks in {@link Selector#select()}, sorts the selected keys by the event loop of their
+ * channel and hands every event loop its batch as a task. The interest ops of a dispatched key are cleared, as the
+ * keys are level-triggered and would be selected again otherwise, and the event loop restores them once it
+ * processed the key. The poller thus selects again right away and a slow event loop only delays its own keys. The
+ * event loops never block in {@link Selector#select()} and never pin their carrier thread; while idle they park in
+ * their task queue.
+ * <p>
+ * Added interest ops and cancelled keys only take effect in the next select operation, so event loops call
+ * {@link #wakeup()} after they added interest ops. Wakeups are coalesced to at most one per cycle.
+ */
+final class NioPoller implements Runnable {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(NioPoller.class);
+
+    private static final ThreadFactory THREAD_FACTORY = new DefaultThreadFactory("loomNioPoller", true);
+
+    private final Selector selector;
+    private final Thread thread;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger eventLoops = new AtomicInteger();
+    private final List<LoomPolledNioEventLoop> dispatched = new ArrayList<LoomPolledNioEventLoop>();
+    private volatile long cycles;
+    private volatile boolean shutdown;
+
+    private NioPoller(SelectorProvider provider) {
+        try {
+            selector = provider.openSelector();
+        } catch (IOException e) {
+            throw new ChannelException("failed to open a new selector", e);
+        }
+        thread = THREAD_FACTORY.newThread(this);
+    }
+
+    static NioPoller[] newPollers(int nPollers, SelectorProvider provider) {
+        NioPoller[] pollers = new NioPoller[nPollers];
+        for (int i = 0; i < nPollers; i++) {
+            pollers[i] = new NioPoller(provider);
+            pollers[i].thread.start();
+        }
+        return pollers;
+    }
+
+    /**
+     * Returns the poller which serves the least event loops and assigns one more event loop to it.
+     */
+    static NioPoller assign(NioPoller[] pollers) {
+        NioPoller poller = pollers[0];
+        for (int i = 1; i < pollers.length; i++) {
+            if (pollers[i].eventLoops.get() < poller.eventLoops.get()) {
+                poller = pollers[i];
+            }
+        }
+        poller.eventLoops.incrementAndGet();
+        return poller;
+    }
+
+    void eventLoopRemoved() {
+        eventLoops.decrementAndGet();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * Makes the current or the next select operation return, so changed interest ops and cancelled keys are
+     * taken into account.
+     */
+    void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Blocks until a select operation started after this call completed, which flushes the keys cancelled before.
+     */
+    void awaitSelect() {
+        final long target = cycles + 2;
+        while (cycles < target && !shutdown) {
+            wakeupPending.set(true);
+            selector.wakeup();
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        selector.wakeup();
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!shutdown) {
+                wakeupPending.set(false);
+                int selected;
+                try {
+                    selected = selector.select();
+                } catch (IOException e) {
+                    logger.warn("Unexpected exception in the poller loop.", e);
+                    continue;
+                }
+                cycles++;
+                if (selected > 0) {
+                    dispatch();
+                }
+            }
+        } catch (ClosedSelectorException ignore) {
+            // shutdown
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a selector.", e);
+            }
+        }
+    }
+
+    private void dispatch() {
+        Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+        while (i.hasNext()) {
+            SelectionKey k = i.next();
+            i.remove();
+            Object a = k.attachment();
+            if (!(a instanceof AbstractNioChannel)) {
+                continue;
+            }
+            final LoomPolledNioEventLoop loop;
+            try {
+                loop = (LoomPolledNioEventLoop) ((AbstractNioChannel) a).eventLoop();
+            } catch (Throwable ignored) {
+                // Not registered anymore.
+                continue;
+            }
+            int interestOps;
+            try {
+                // Cleared atomically, so interest ops the event loop adds concurrently are not lost.
+                interestOps = k.interestOpsAnd(0);
+            } catch (CancelledKeyException e) {
+                // Still dispatched, so the event loop closes the channel.
+                interestOps = 0;
+            }
+            if (loop.addToBatch(k, interestOps)) {
+                dispatched.add(loop);
+            }
+        }
+
+        for (LoomPolledNioEventLoop loop: dispatched) {
+            try {
+                loop.dispatchBatch();
+            } catch (RejectedExecutionException e) {
+                // The event loop is shutting down and closes its channels.
+                loop.releaseBatch();
+            }
+        }
+        dispatched.clear();
+    }
+}
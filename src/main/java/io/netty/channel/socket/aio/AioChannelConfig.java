@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket.aio;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.nio.channels.NetworkChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.RecvByteBufAllocator;
+
+/**
+ * Base class of the AIO channel configurations. Client channels only open their {@link NetworkChannel} once they
+ * are registered, so options which are set before are kept and applied by {@link #attach(NetworkChannel)}.
+ */
+abstract class AioChannelConfig extends DefaultChannelConfig {
+
+    private final Map<SocketOption<?>, Object> pendingOptions = new HashMap<SocketOption<?>, Object>();
+    private NetworkChannel javaChannel;
+
+    AioChannelConfig(Channel channel, NetworkChannel javaChannel) {
+        super(channel);
+        this.javaChannel = javaChannel;
+    }
+
+    AioChannelConfig(Channel channel, NetworkChannel javaChannel, RecvByteBufAllocator allocator) {
+        super(channel, allocator);
+        this.javaChannel = javaChannel;
+    }
+
+    /**
+     * Binds this configuration to the opened {@link NetworkChannel} and applies all options which were set before.
+     */
+    final void attach(NetworkChannel javaChannel) throws IOException {
+        synchronized (pendingOptions) {
+            for (Map.Entry<SocketOption<?>, Object> e: pendingOptions.entrySet()) {
+                setOption0(javaChannel, e.getKey(), e.getValue());
+            }
+            pendingOptions.clear();
+            this.javaChannel = javaChannel;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setOption0(NetworkChannel javaChannel, SocketOption<T> name, Object value)
+            throws IOException {
+        javaChannel.setOption(name, (T) value);
+    }
+
+    @SuppressWarnings("unchecked")
+    final <T> T getSocketOption(SocketOption<T> name, T defaultValue) {
+        synchronized (pendingOptions) {
+            if (javaChannel == null) {
+                Object value = pendingOptions.get(name);
+                return value == null ? defaultValue : (T) value;
+            }
+            try {
+                return javaChannel.getOption(name);
+            } catch (IOException e) {
+                throw new ChannelException(e);
+            }
+        }
+    }
+
+    final <T> void setSocketOption(SocketOption<T> name, T value) {
+        synchronized (pendingOptions) {
+            if (javaChannel == null) {
+                pendingOptions.put(name, value);
+                return;
+            }
+            try {
+                javaChannel.setOption(name, value);
+            } catch (IOException e) {
+                throw new ChannelException(e);
+            }
+        }
+    }
+}
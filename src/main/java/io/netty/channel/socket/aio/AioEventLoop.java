@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket.aio;
+
+import java.util.concurrent.Executor;
+
+import io.netty.util.concurrent.VirtualThreadEventLoop;
+
+/**
+ * {@link VirtualThreadEventLoop} of the {@link AioEventLoopGroup}. There is nothing to select, the event loop
+ * parks on its task queue until a completion handler or the user submits a task.
+ */
+public final class AioEventLoop extends VirtualThreadEventLoop {
+
+    AioEventLoop(AioEventLoopGroup parent, Executor executor) {
+        super(parent, executor, true);
+    }
+
+    @Override
+    public AioEventLoopGroup parent() {
+        return (AioEventLoopGroup) super.parent();
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            Runnable task = takeTask();
+            if (task != null) {
+                safeExecute(task);
+                updateLastExecutionTime();
+            }
+
+            if (confirmShutdown()) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket.aio;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.ChannelException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.VirtualThreadEventLoopGroup;
+import io.netty.util.concurrent.DefaultVirtualThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.internal.ObjectUtil;
+
+/**
+ * {@link VirtualThreadEventLoopGroup} for the {@link AioServerSocketChannel} and {@link AioSocketChannel}
+ * transport, which is built on {@link java.nio.channels.AsynchronousSocketChannel} instead of a
+ * {@link java.nio.channels.Selector}.
+ * <p>
+ * The channels are opened in the {@link AsynchronousChannelGroup} of this group. Its threads only run the
+ * {@link java.nio.channels.CompletionHandler}s, which hand the result over to the {@link AioEventLoop} of the
+ * channel, so the pipeline is still only touched by the event loop. Accepted channels keep using the
+ * {@link AsynchronousChannelGroup} of the group which accepted them, so shutting down that group does not close them.
+ * Its {@link AsynchronousChannelGroup} terminates once they are closed.
+ */
+public class AioEventLoopGroup extends VirtualThreadEventLoopGroup {
+
+    private final AsynchronousChannelGroup channelGroup;
+
+    /**
+     * Create a new instance using the default number of threads and the default {@link ThreadFactory}.
+     */
+    public AioEventLoopGroup() {
+        this(0);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and the default {@link ThreadFactory}.
+     */
+    public AioEventLoopGroup(int nThreads) {
+        this(nThreads, (ThreadFactory) null);
+    }
+
+    /**
+     * Create a new instance using the specified number of threads and {@link ThreadFactory}. The completion handlers
+     * run on virtual threads.
+     */
+    public AioEventLoopGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, newDefaultChannelGroup());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param nThreads      the number of event loops.
+     * @param threadFactory the {@link ThreadFactory} of the event loops, or {@code null} to use the default.
+     * @param channelGroup  the {@link AsynchronousChannelGroup} the channels are opened in. It is shut down with this
+     *                      group and terminates once the last channel opened in it was closed, which includes the
+     *                      accepted channels that are served by another group.
+     */
+    public AioEventLoopGroup(int nThreads, ThreadFactory threadFactory, AsynchronousChannelGroup channelGroup) {
+        super(nThreads, threadFactory);
+        this.channelGroup = ObjectUtil.checkNotNull(channelGroup, "channelGroup");
+        terminationFuture().addListener(new FutureListener<Object>() {
+            @Override
+            public void operationComplete(Future<Object> future) throws Exception {
+                // Accepted channels may still be open in the child group, shutdownNow() would close them.
+                AioEventLoopGroup.this.channelGroup.shutdown();
+            }
+        });
+    }
+
+    private static AsynchronousChannelGroup newDefaultChannelGroup() {
+        try {
+            return AsynchronousChannelGroup.withThreadPool(Executors.newCachedThreadPool(
+                    new DefaultVirtualThreadFactory("aioEventLoopGroupCompletion", true)));
+        } catch (IOException e) {
+            throw new ChannelException("failed to open an AsynchronousChannelGroup", e);
+        }
+    }
+
+    /**
+     * Returns the {@link AsynchronousChannelGroup} the channels of this group are opened in.
+     */
+    public AsynchronousChannelGroup channelGroup() {
+        return channelGroup;
+    }
+
+    @Override
+    protected EventLoop newChild(Executor executor, Object... args) throws Exception {
+        return new AioEventLoop(this, executor);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket.aio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.AbstractServerChannel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * {@link ServerSocketChannel} which uses an {@link AsynchronousServerSocketChannel} to accept new connections as
+ * {@link AioSocketChannel}s. Like with the NIO transport the accepted channels are handed to the pipeline of this
+ * channel, so it plugs into {@link io.netty.bootstrap.ServerBootstrap} the same way as
+ * {@link io.netty.channel.socket.nio.NioServerSocketChannel}.
+ */
+public class AioServerSocketChannel extends AbstractServerChannel implements ServerSocketChannel {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AioServerSocketChannel.class);
+
+    private final AioServerSocketChannelConfig config = new AioServerSocketChannelConfig(this);
+    private final AcceptHandler acceptHandler = new AcceptHandler();
+    private final Runnable retryAcceptTask = new Runnable() {
+        @Override
+        public void run() {
+            acceptRetryPending = false;
+            if (config.isAutoRead()) {
+                unsafe().beginRead();
+            }
+        }
+    };
+
+    private volatile AsynchronousServerSocketChannel javaChannel;
+    private volatile boolean open = true;
+    private volatile boolean bound;
+
+    // Only accessed by the event loop.
+    private boolean acceptInProgress;
+    private boolean acceptRetryPending;
+
+    @Override
+    public AioServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isActive() {
+        return open && bound;
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return null;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof AioEventLoop;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        AsynchronousServerSocketChannel ch = javaChannel;
+        if (ch == null) {
+            return null;
+        }
+        try {
+            return ch.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        if (javaChannel == null) {
+            AsynchronousServerSocketChannel ch = AsynchronousServerSocketChannel.open(
+                    ((AioEventLoop) eventLoop()).parent().channelGroup());
+            try {
+                config.attach(ch);
+            } catch (IOException e) {
+                ch.close();
+                throw e;
+            }
+            javaChannel = ch;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        javaChannel.bind(localAddress, config.getBacklog());
+        bound = true;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        open = false;
+        AsynchronousServerSocketChannel ch = javaChannel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        if (acceptInProgress || acceptRetryPending || !isActive()) {
+            return;
+        }
+        acceptInProgress = true;
+        try {
+            javaChannel.accept(null, acceptHandler);
+        } catch (RuntimeException e) {
+            acceptInProgress = false;
+            throw e;
+        }
+    }
+
+    private void acceptCompleted(AsynchronousSocketChannel ch, Throwable cause) {
+        acceptInProgress = false;
+        if (!isOpen()) {
+            // The accept was aborted by close().
+            closeQuietly(ch);
+            return;
+        }
+
+        ChannelPipeline pipeline = pipeline();
+        RecvByteBufAllocator.Handle allocHandle = unsafe().recvBufAllocHandle();
+        allocHandle.reset(config);
+        if (cause != null) {
+            pipeline.fireExceptionCaught(cause);
+        } else {
+            allocHandle.incMessagesRead(1);
+            try {
+                pipeline.fireChannelRead(new AioSocketChannel(this, ch));
+            } catch (Throwable t) {
+                logger.warn("Failed to create a new channel from an accepted socket.", t);
+                closeQuietly(ch);
+            }
+        }
+        allocHandle.readComplete();
+        pipeline.fireChannelReadComplete();
+
+        if (cause instanceof IOException) {
+            // Most likely the process ran out of file descriptors (EMFILE). Accepting again right away fails the
+            // same way, so pause for a second like ServerBootstrapAcceptor does for NIO.
+            acceptRetryPending = true;
+            eventLoop().schedule(retryAcceptTask, 1, TimeUnit.SECONDS);
+            return;
+        }
+        if (config.isAutoRead()) {
+            unsafe().beginRead();
+        }
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel ch) {
+        if (ch == null) {
+            return;
+        }
+        try {
+            ch.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close an accepted socket.", e);
+        }
+    }
+
+    private final class AcceptHandler implements CompletionHandler<AsynchronousSocketChannel, Void>, Runnable {
+        private AsynchronousSocketChannel ch;
+        private Throwable cause;
+
+        @Override
+        public void completed(AsynchronousSocketChannel ch, Void attachment) {
+            this.ch = ch;
+            cause = null;
+            submit();
+        }
+
+        @Override
+        public void failed(Throwable cause, Void attachment) {
+            ch = null;
+            this.cause = cause;
+            submit();
+        }
+
+        private void submit() {
+            try {
+                eventLoop().execute(this);
+            } catch (RejectedExecutionException e) {
+                // The event loop is gone, nobody is going to register the accepted socket anymore.
+                AsynchronousSocketChannel ch = this.ch;
+                this.ch = null;
+                closeQuietly(ch);
+            }
+        }
+
+        @Override
+        public void run() {
+            AsynchronousSocketChannel ch = this.ch;
+            Throwable cause = this.cause;
+            this.ch = null;
+            this.cause = null;
+            acceptCompleted(ch, cause);
+        }
+    }
+}
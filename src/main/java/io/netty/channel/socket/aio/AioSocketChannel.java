@@ -0,0 +1,718 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket.aio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.ConnectionPendingException;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.StringUtil;
+
+/**
+ * {@link SocketChannel} which uses an {@link AsynchronousSocketChannel}. Reads and writes are submitted to the
+ * {@link java.nio.channels.AsynchronousChannelGroup} of the {@link AioEventLoopGroup} and their
+ * {@link CompletionHandler}s re-enter the {@link AioEventLoop} of the channel, which is the only thread that touches
+ * the {@link ChannelPipeline} and the {@link ChannelOutboundBuffer}.
+ * <p>
+ * At most one read and one write are in flight at any time. Reads go into buffers of the configured
+ * {@link RecvByteBufAllocator}, which are pooled direct buffers by default, and outbound heap buffers are copied
+ * into pooled direct buffers, so the JDK never needs to copy them into a temporary direct buffer of its own.
+ */
+public class AioSocketChannel extends AbstractChannel implements SocketChannel {
+
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES = " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    private final AioSocketChannelConfig config;
+    private final ReadHandler readHandler = new ReadHandler();
+    private final WriteHandler writeHandler = new WriteHandler();
+
+    private volatile AsynchronousSocketChannel javaChannel;
+    private volatile boolean open = true;
+    private volatile boolean active;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    // Only accessed by the event loop.
+    private boolean readInProgress;
+    private boolean writeInProgress;
+    private ByteBuf[] inFlightBufs;
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    /**
+     * Create a new client channel. The {@link AsynchronousSocketChannel} is opened once the channel is registered
+     * with an {@link AioEventLoop}.
+     */
+    public AioSocketChannel() {
+        this(null, null);
+    }
+
+    /**
+     * Create a new instance for an accepted {@link AsynchronousSocketChannel}.
+     *
+     * @param parent      the {@link Channel} which accepted the connection, or {@code null}.
+     * @param javaChannel the connected {@link AsynchronousSocketChannel}.
+     */
+    public AioSocketChannel(Channel parent, AsynchronousSocketChannel javaChannel) {
+        super(parent);
+        this.javaChannel = javaChannel;
+        active = javaChannel != null;
+        config = new AioSocketChannelConfig(this, javaChannel);
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public AioSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isActive() {
+        return open && active;
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown || !isActive();
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown || !isActive();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isInputShutdown() && isOutputShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            shutdownInput0(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownInput0(ChannelPromise promise) {
+        try {
+            doShutdownInput();
+            promise.setSuccess();
+        } catch (Throwable t) {
+            promise.setFailure(t);
+        }
+    }
+
+    private void doShutdownInput() throws IOException {
+        AsynchronousSocketChannel ch = javaChannel;
+        if (ch == null) {
+            throw new ClosedChannelException();
+        }
+        ch.shutdownInput();
+        inputShutdown = true;
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final ChannelFuture shutdownOutputFuture) throws Exception {
+                    shutdownOutputDone(shutdownOutputFuture, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture shutdownInputFuture) throws Exception {
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+                }
+            });
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture, ChannelFuture shutdownInputFuture,
+                                     ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                shutdownOutputCause.addSuppressed(shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    @Override
+    protected AbstractUnsafe newUnsafe() {
+        return new AioSocketUnsafe();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof AioEventLoop;
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        AsynchronousSocketChannel ch = javaChannel;
+        if (ch == null) {
+            return null;
+        }
+        try {
+            return ch.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        AsynchronousSocketChannel ch = javaChannel;
+        if (ch == null) {
+            return null;
+        }
+        try {
+            return ch.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        if (javaChannel == null) {
+            AsynchronousSocketChannel ch = AsynchronousSocketChannel.open(
+                    ((AioEventLoop) eventLoop()).parent().channelGroup());
+            try {
+                config.attach(ch);
+            } catch (IOException e) {
+                ch.close();
+                throw e;
+            }
+            javaChannel = ch;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        javaChannel.bind(localAddress);
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        open = false;
+        active = false;
+
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            connectPromise = null;
+            promise.tryFailure(new ClosedChannelException());
+        }
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            connectTimeoutFuture = null;
+            future.cancel(false);
+        }
+
+        AsynchronousSocketChannel ch = javaChannel;
+        if (ch != null) {
+            ch.close();
+        }
+    }
+
+    @Override
+    protected void doShutdownOutput() throws Exception {
+        javaChannel.shutdownOutput();
+        outputShutdown = true;
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        if (readInProgress || inputShutdown || !isActive()) {
+            return;
+        }
+
+        RecvByteBufAllocator.Handle allocHandle = unsafe().recvBufAllocHandle();
+        allocHandle.reset(config);
+        ByteBuf buf = allocHandle.allocate(config.getAllocator());
+        allocHandle.attemptedBytesRead(buf.writableBytes());
+        readHandler.buf = buf;
+        readInProgress = true;
+        try {
+            javaChannel.read(buf.nioBuffer(buf.writerIndex(), buf.writableBytes()), null, readHandler);
+        } catch (RuntimeException e) {
+            readInProgress = false;
+            readHandler.buf = null;
+            buf.release();
+            throw e;
+        }
+    }
+
+    private void readCompleted(ByteBuf buf, int bytesRead, Throwable cause) {
+        readInProgress = false;
+        if (!isOpen()) {
+            // The read was aborted by close().
+            buf.release();
+            return;
+        }
+
+        ChannelPipeline pipeline = pipeline();
+        if (cause != null) {
+            buf.release();
+            pipeline.fireExceptionCaught(cause);
+            if (cause instanceof IOException) {
+                unsafe().close(unsafe().voidPromise());
+            }
+            return;
+        }
+
+        RecvByteBufAllocator.Handle allocHandle = unsafe().recvBufAllocHandle();
+        allocHandle.lastBytesRead(bytesRead);
+        if (bytesRead <= 0) {
+            buf.release();
+        } else {
+            buf.writerIndex(buf.writerIndex() + bytesRead);
+            allocHandle.incMessagesRead(1);
+            pipeline.fireChannelRead(buf);
+        }
+        allocHandle.readComplete();
+        pipeline.fireChannelReadComplete();
+
+        if (bytesRead < 0) {
+            closeOnRead(pipeline);
+        } else if (config.isAutoRead()) {
+            unsafe().beginRead();
+        }
+    }
+
+    private void closeOnRead(ChannelPipeline pipeline) {
+        if (config.isAllowHalfClosure()) {
+            try {
+                doShutdownInput();
+            } catch (IOException e) {
+                unsafe().close(unsafe().voidPromise());
+                return;
+            }
+            pipeline.fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+            pipeline.fireUserEventTriggered(ChannelInputShutdownReadComplete.INSTANCE);
+        } else {
+            unsafe().close(unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (writeInProgress) {
+            // The completion handler calls flush0() again once the pending write is done.
+            return;
+        }
+
+        ByteBuffer[] nioBuffers = in.nioBuffers(1024, Integer.MAX_VALUE);
+        int nioBufferCnt = in.nioBufferCount();
+        if (nioBufferCnt == 0) {
+            // Only empty buffers are left.
+            in.removeBytes(0);
+            return;
+        }
+
+        // The array returned by nioBuffers(...) is shared by all channels of this thread, so it must not be handed
+        // over to the asynchronous write.
+        ByteBuffer[] srcs = Arrays.copyOf(nioBuffers, nioBufferCnt);
+        // The kernel keeps reading from these buffers after doWrite returns, while close() releases everything left
+        // in the outbound buffer. Hold an extra reference until the write completed.
+        inFlightBufs = retainFlushed(in, nioBufferCnt);
+        writeInProgress = true;
+        try {
+            javaChannel.write(srcs, 0, nioBufferCnt, 0L, TimeUnit.MILLISECONDS, null, writeHandler);
+        } catch (RuntimeException e) {
+            writeInProgress = false;
+            releaseInFlightBufs();
+            throw e;
+        }
+    }
+
+    /**
+     * Retains the flushed {@link ByteBuf}s which back the {@link ByteBuffer}s returned by
+     * {@link ChannelOutboundBuffer#nioBuffers(int, long)}.
+     */
+    private static ByteBuf[] retainFlushed(ChannelOutboundBuffer in, int nioBufferCnt) throws Exception {
+        final ByteBuf[] bufs = new ByteBuf[nioBufferCnt];
+        final long nioBufferSize = in.nioBufferSize();
+        in.forEachFlushedMessage(new ChannelOutboundBuffer.MessageProcessor() {
+            private int count;
+            private long bytes;
+
+            @Override
+            public boolean processMessage(Object msg) {
+                ByteBuf buf = (ByteBuf) msg;
+                int readableBytes = buf.readableBytes();
+                if (readableBytes == 0) {
+                    // Empty buffers are skipped by nioBuffers(...) as well.
+                    return true;
+                }
+                bufs[count++] = buf.retain();
+                bytes += readableBytes;
+                return bytes < nioBufferSize && count < bufs.length;
+            }
+        });
+        return bufs;
+    }
+
+    private void releaseInFlightBufs() {
+        ByteBuf[] bufs = inFlightBufs;
+        if (bufs == null) {
+            return;
+        }
+        inFlightBufs = null;
+        for (ByteBuf buf : bufs) {
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (buf.isDirect()) {
+                return msg;
+            }
+            int readableBytes = buf.readableBytes();
+            ByteBuf directBuf = alloc().directBuffer(readableBytes);
+            directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+            ReferenceCountUtil.safeRelease(buf);
+            return directBuf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    private void reenter(Runnable task) {
+        eventLoop().execute(task);
+    }
+
+    private final class ReadHandler implements CompletionHandler<Integer, Void>, Runnable {
+        private ByteBuf buf;
+        private int bytesRead;
+        private Throwable cause;
+
+        @Override
+        public void completed(Integer bytesRead, Void attachment) {
+            this.bytesRead = bytesRead;
+            cause = null;
+            submit();
+        }
+
+        @Override
+        public void failed(Throwable cause, Void attachment) {
+            this.cause = cause;
+            submit();
+        }
+
+        private void submit() {
+            try {
+                reenter(this);
+            } catch (RejectedExecutionException e) {
+                // The event loop is gone, nobody is going to consume the buffer anymore.
+                ByteBuf buf = this.buf;
+                this.buf = null;
+                if (buf != null) {
+                    buf.release();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            ByteBuf buf = this.buf;
+            Throwable cause = this.cause;
+            this.buf = null;
+            this.cause = null;
+            readCompleted(buf, bytesRead, cause);
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Long, Void>, Runnable {
+        private long bytesWritten;
+        private Throwable cause;
+
+        @Override
+        public void completed(Long bytesWritten, Void attachment) {
+            this.bytesWritten = bytesWritten;
+            cause = null;
+            submit();
+        }
+
+        @Override
+        public void failed(Throwable cause, Void attachment) {
+            this.cause = cause;
+            submit();
+        }
+
+        private void submit() {
+            try {
+                reenter(this);
+            } catch (RejectedExecutionException ignore) {
+                // The event loop is gone, the outbound buffer was released on close. Drop the references which kept
+                // the buffers of this write alive.
+                releaseInFlightBufs();
+            }
+        }
+
+        @Override
+        public void run() {
+            Throwable cause = this.cause;
+            this.cause = null;
+            ((AioSocketUnsafe) unsafe()).writeCompleted(bytesWritten, cause);
+        }
+    }
+
+    private final class AioSocketUnsafe extends AbstractUnsafe {
+
+        @Override
+        public void connect(final SocketAddress remoteAddress, SocketAddress localAddress,
+                            final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+            if (connectPromise != null) {
+                promise.setFailure(new ConnectionPendingException());
+                return;
+            }
+
+            try {
+                if (localAddress != null) {
+                    javaChannel.bind(localAddress);
+                }
+            } catch (Throwable t) {
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+                closeIfClosed();
+                return;
+            }
+
+            connectPromise = promise;
+            requestedRemoteAddress = remoteAddress;
+
+            int connectTimeoutMillis = config.getConnectTimeoutMillis();
+            if (connectTimeoutMillis > 0) {
+                connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        ChannelPromise connectPromise = AioSocketChannel.this.connectPromise;
+                        if (connectPromise != null) {
+                            AioSocketChannel.this.connectPromise = null;
+                            connectTimeoutFuture = null;
+                            connectPromise.tryFailure(
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress));
+                            close(voidPromise());
+                        }
+                    }
+                }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+
+            try {
+                javaChannel.connect(remoteAddress, null, new CompletionHandler<Void, Void>() {
+                    @Override
+                    public void completed(Void result, Void attachment) {
+                        connectCompletedLater(null);
+                    }
+
+                    @Override
+                    public void failed(Throwable cause, Void attachment) {
+                        connectCompletedLater(cause);
+                    }
+                });
+            } catch (Throwable t) {
+                connectCompleted(t);
+            }
+        }
+
+        private void connectCompletedLater(final Throwable cause) {
+            try {
+                reenter(new Runnable() {
+                    @Override
+                    public void run() {
+                        connectCompleted(cause);
+                    }
+                });
+            } catch (RejectedExecutionException ignore) {
+                // The event loop is gone, the promise was failed on close.
+            }
+        }
+
+        private void connectCompleted(Throwable cause) {
+            ChannelPromise promise = connectPromise;
+            if (promise == null) {
+                // Timed out or closed in the meantime.
+                return;
+            }
+            connectPromise = null;
+            ScheduledFuture<?> future = connectTimeoutFuture;
+            if (future != null) {
+                connectTimeoutFuture = null;
+                future.cancel(false);
+            }
+
+            if (cause != null) {
+                promise.tryFailure(annotateConnectException(cause, requestedRemoteAddress));
+                closeIfClosed();
+                return;
+            }
+
+            boolean wasActive = isActive();
+            active = true;
+            boolean promiseSet = promise.trySuccess();
+            if (!wasActive && isActive()) {
+                pipeline().fireChannelActive();
+            }
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        void writeCompleted(long bytesWritten, Throwable cause) {
+            writeInProgress = false;
+            releaseInFlightBufs();
+            if (cause != null) {
+                if (isOpen()) {
+                    handleWriteError(cause);
+                }
+                return;
+            }
+
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (in != null) {
+                in.removeBytes(bytesWritten);
+            }
+            flush0();
+        }
+    }
+}
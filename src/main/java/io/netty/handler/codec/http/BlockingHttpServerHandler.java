@@ -0,0 +1,270 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultVirtualThreadFactory;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Runs a {@link BlockingHttpService} on one virtual thread per connection, so the service can be written as straight
+ * blocking code while the event loop only decodes and encodes. Must be placed after an {@link HttpServerCodec} and
+ * an {@link HttpObjectAggregator}:
+ *
+ * <pre>
+ * pipeline.addLast(new {@link HttpServerCodec}());
+ * pipeline.addLast(new {@link HttpObjectAggregator}(maxContentLength));
+ * pipeline.addLast(new {@link BlockingHttpServerHandler}(service));
+ * </pre>
+ *
+ * The virtual thread is started with the first request and handles the requests of its connection one after the
+ * other, so the responses of pipelined HTTP/1.1 requests are written in request order. Once
+ * {@code maxPendingRequests} requests wait for the service, reading from the connection is suspended until the
+ * service caught up. The next request is only taken once the channel is writable again, so a slow reader can not
+ * make the outbound buffer grow without bound. The thread ends with the connection, a service which is still
+ * blocked is interrupted.
+ * <p>
+ * This handler can not be shared, every connection needs its own instance.
+ */
+public class BlockingHttpServerHandler extends ChannelInboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(BlockingHttpServerHandler.class);
+
+    private static final int DEFAULT_MAX_PENDING_REQUESTS = 16;
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY =
+            new DefaultVirtualThreadFactory(BlockingHttpServerHandler.class);
+
+    // Tells the virtual thread that the connection is gone.
+    private static final FullHttpRequest STOP =
+            new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/", Unpooled.EMPTY_BUFFER);
+
+    private final BlockingHttpService service;
+    private final ThreadFactory threadFactory;
+    private final int maxPendingRequests;
+    private final BlockingQueue<FullHttpRequest> requests = new LinkedBlockingQueue<FullHttpRequest>();
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private ChannelHandlerContext ctx;
+    // Only accessed by the event loop.
+    private Thread worker;
+    // The worker while it waits for the channel to become writable.
+    private volatile Thread writabilityWaiter;
+
+    private final Runnable resumeReading = new Runnable() {
+        @Override
+        public void run() {
+            if (pendingRequests.get() < maxPendingRequests) {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }
+    };
+
+    /**
+     * Create a new instance which uses a default {@link ThreadFactory} for virtual threads.
+     */
+    public BlockingHttpServerHandler(BlockingHttpService service) {
+        this(service, DEFAULT_THREAD_FACTORY, DEFAULT_MAX_PENDING_REQUESTS);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param service            the service which handles the requests.
+     * @param threadFactory      the {@link ThreadFactory} which creates the thread of the connection, it should
+     *                           create virtual threads.
+     * @param maxPendingRequests the number of requests which may wait for the service before reading from the
+     *                           connection is suspended.
+     */
+    public BlockingHttpServerHandler(BlockingHttpService service, ThreadFactory threadFactory,
+                                     int maxPendingRequests) {
+        this.service = ObjectUtil.checkNotNull(service, "service");
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+        this.maxPendingRequests = ObjectUtil.checkPositive(maxPendingRequests, "maxPendingRequests");
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof FullHttpRequest)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        if (worker == null) {
+            worker = threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    serve();
+                }
+            });
+            worker.start();
+        }
+        if (pendingRequests.incrementAndGet() >= maxPendingRequests) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        requests.add((FullHttpRequest) msg);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        Thread waiter = writabilityWaiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        stop();
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        stop();
+    }
+
+    private void stop() {
+        if (worker != null) {
+            requests.add(STOP);
+            // The connection is gone, do not let a blocked service keep the thread alive.
+            worker.interrupt();
+        }
+    }
+
+    private void serve() {
+        boolean keepAlive = true;
+        try {
+            for (;;) {
+                FullHttpRequest request = requests.take();
+                if (request == STOP) {
+                    break;
+                }
+                try {
+                    // Requests which were pipelined behind a response that closes the connection are dropped.
+                    if (keepAlive) {
+                        keepAlive = handle(request);
+                        awaitWritable();
+                    }
+                } finally {
+                    ReferenceCountUtil.release(request);
+                }
+                if (pendingRequests.decrementAndGet() == maxPendingRequests - 1) {
+                    ctx.executor().execute(resumeReading);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            FullHttpRequest request;
+            while ((request = requests.poll()) != null) {
+                if (request != STOP) {
+                    ReferenceCountUtil.release(request);
+                }
+            }
+        }
+    }
+
+    private void awaitWritable() throws InterruptedException {
+        Channel channel = ctx.channel();
+        while (!channel.isWritable() && channel.isActive()) {
+            writabilityWaiter = Thread.currentThread();
+            try {
+                // Check again, the channel may have become writable before the waiter was published.
+                if (!channel.isWritable() && channel.isActive()) {
+                    LockSupport.park(this);
+                }
+            } finally {
+                writabilityWaiter = null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Runs the service for the given request and writes the response.
+     *
+     * @return {@code false} if the connection is closed after the response.
+     */
+    private boolean handle(FullHttpRequest request) {
+        FullHttpResponse response;
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        if (request.decoderResult().isFailure()) {
+            response = new DefaultFullHttpResponse(request.protocolVersion(), BAD_REQUEST);
+            keepAlive = false;
+        } else {
+            try {
+                response = service.handle(request);
+                if (response == null) {
+                    throw new NullPointerException("response");
+                }
+            } catch (Throwable t) {
+                if (ctx.channel().isActive()) {
+                    logger.warn("{} failed to handle {} {}.", service, request.method(), request.uri(), t);
+                }
+                response = new DefaultFullHttpResponse(request.protocolVersion(), INTERNAL_SERVER_ERROR);
+                keepAlive = false;
+            }
+        }
+
+        keepAlive &= HttpUtil.isKeepAlive(response);
+        if (mayHaveContent(response.status()) && !response.headers().contains(HttpHeaderNames.CONTENT_LENGTH)) {
+            HttpUtil.setContentLength(response, response.content().readableBytes());
+        }
+        if (keepAlive) {
+            if (!request.protocolVersion().isKeepAliveDefault()) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+        } else {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+
+        // The write is handed over to the event loop, which keeps the order of the responses.
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        return keepAlive;
+    }
+
+    // RFC 7230 section 3.3.2: 1xx and 204 responses must not carry a Content-Length.
+    private static boolean mayHaveContent(HttpResponseStatus status) {
+        return status.codeClass() != HttpStatusClass.INFORMATIONAL && status.code() != 204;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+/**
+ * Blocking request to response function which is run by a {@link BlockingHttpServerHandler} on the virtual thread
+ * of a connection. Implementations may block as long as they like, the event loop is never blocked.
+ */
+public interface BlockingHttpService {
+
+    /**
+     * Handles the given request. The request is released once this method returns, the returned response is
+     * written back to the connection.
+     *
+     * @param request the aggregated request.
+     * @return the response, its {@code Content-Length} is set if the service did not set it.
+     */
+    FullHttpResponse handle(FullHttpRequest request) throws Exception;
+}
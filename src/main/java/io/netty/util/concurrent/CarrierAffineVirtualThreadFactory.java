@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * {@link DefaultVirtualThreadFactory} which runs its virtual threads on dedicated carriers instead of the shared
+ * {@link java.util.concurrent.ForkJoinPool} of the virtual thread scheduler. Every {@code threadsPerCarrier}
+ * consecutive threads share one single-threaded scheduler backed by a platform thread. As an event loop group
+ * creates exactly one thread per event loop, each event loop keeps running on the same core and its selector,
+ * selected key set and thread-local buffer caches stay warm in the L1/L2 cache, just like with a platform
+ * {@link io.netty.channel.nio.NioEventLoop} thread.
+ * <p>
+ * A carrier only runs one virtual thread at a time. Event loops which block in {@link java.nio.channels.Selector}
+ * pin their carrier, so they must not share one: use {@code threadsPerCarrier > 1} only for event loops which park
+ * on their task queue, like the ones of the {@link io.netty.channel.nio.LoomPolledNioEventLoopGroup}.
+ * <p>
+ * This relies on {@code Thread.Builder.OfVirtual#scheduler(Executor)} of the Loom early-access builds.
+ */
+public class CarrierAffineVirtualThreadFactory extends DefaultVirtualThreadFactory {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(CarrierAffineVirtualThreadFactory.class);
+
+    private final String poolName;
+    private final int threadsPerCarrier;
+    private final CarrierAffinity affinity;
+    private final AtomicInteger nextThread = new AtomicInteger();
+    private final List<ExecutorService> carriers = new ArrayList<ExecutorService>();
+
+    /**
+     * Create a new instance which gives every thread a carrier of its own and does not bind the carriers.
+     */
+    public CarrierAffineVirtualThreadFactory(String poolName) {
+        this(poolName, 1, CarrierAffinity.NONE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param poolName          the name prefix of the threads.
+     * @param threadsPerCarrier the number of consecutively created threads which share one carrier.
+     * @param affinity          the {@link CarrierAffinity} which is called on every new carrier thread.
+     */
+    public CarrierAffineVirtualThreadFactory(String poolName, int threadsPerCarrier, CarrierAffinity affinity) {
+        super(poolName, false, Thread.NORM_PRIORITY);
+        this.poolName = poolName;
+        this.threadsPerCarrier = ObjectUtil.checkPositive(threadsPerCarrier, "threadsPerCarrier");
+        this.affinity = ObjectUtil.checkNotNull(affinity, "affinity");
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int carrierIndex = nextThread.getAndIncrement() / threadsPerCarrier;
+        return Thread.ofVirtual().name(name).scheduler(carrier(carrierIndex)).unstarted(r);
+    }
+
+    private Executor carrier(int carrierIndex) {
+        synchronized (carriers) {
+            while (carriers.size() <= carrierIndex) {
+                carriers.add(Executors.newSingleThreadExecutor(newCarrierThreadFactory(carriers.size())));
+            }
+            return carriers.get(carrierIndex);
+        }
+    }
+
+    private ThreadFactory newCarrierThreadFactory(final int carrierIndex) {
+        final String name = poolName + "-carrier-" + carrierIndex;
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            affinity.bind(carrierIndex);
+                        } catch (Throwable cause) {
+                            logger.warn("Failed to bind carrier thread {}.", name, cause);
+                        }
+                        r.run();
+                    }
+                }, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of carrier threads created so far.
+     */
+    public int carrierCount() {
+        synchronized (carriers) {
+            return carriers.size();
+        }
+    }
+
+    /**
+     * Shuts the carrier threads down. Call it only after the event loops which use this factory have terminated,
+     * as parked virtual threads could not be resumed anymore.
+     */
+    public void shutdown() {
+        synchronized (carriers) {
+            for (ExecutorService carrier: carriers) {
+                carrier.shutdown();
+            }
+        }
+    }
+}
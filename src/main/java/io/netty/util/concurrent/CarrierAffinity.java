@@ -0,0 +1,41 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+/**
+ * Hook of the {@link CarrierAffineVirtualThreadFactory} which is called once on every carrier thread before it runs
+ * its first virtual thread. Implementations can pin the calling thread to a CPU, for example through a native
+ * affinity library, which is not available from plain Java.
+ */
+public interface CarrierAffinity {
+
+    /**
+     * Does not bind the carrier threads at all.
+     */
+    CarrierAffinity NONE = new CarrierAffinity() {
+        @Override
+        public void bind(int carrierIndex) {
+            // NOOP
+        }
+    };
+
+    /**
+     * Binds the calling carrier thread.
+     *
+     * @param carrierIndex the index of the carrier within its factory, starting at {@code 0}.
+     */
+    void bind(int carrierIndex);
+}
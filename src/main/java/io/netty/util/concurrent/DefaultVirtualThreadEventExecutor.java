@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Default {@link VirtualThreadEventExecutor} implementation which just execute all submitted task in a serial
+ * fashion.
+ */
+public final class DefaultVirtualThreadEventExecutor extends VirtualThreadEventExecutor {
+
+    public DefaultVirtualThreadEventExecutor() {
+        this((EventExecutorGroup) null);
+    }
+
+    public DefaultVirtualThreadEventExecutor(ThreadFactory threadFactory) {
+        this(null, threadFactory);
+    }
+
+    public DefaultVirtualThreadEventExecutor(Executor executor) {
+        this(null, executor);
+    }
+
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent) {
+        this(parent, new DefaultVirtualThreadFactory(DefaultVirtualThreadEventExecutor.class));
+    }
+
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent, ThreadFactory threadFactory) {
+        super(parent, threadFactory, true);
+    }
+
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent, Executor executor) {
+        super(parent, executor, true);
+    }
+
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent, ThreadFactory threadFactory,
+                                             int maxPendingTasks, LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, threadFactory, true, maxPendingTasks, rejectedExecutionHandler);
+    }
+
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent, Executor executor, int maxPendingTasks,
+                                             LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, true, maxPendingTasks, rejectedExecutionHandler);
+    }
+
+    /**
+     * @param taskQueue the task queue to use. It must implement {@link java.util.concurrent.BlockingQueue}, for
+     *                  example a {@link ParkingMpscBlockingQueue}.
+     */
+    public DefaultVirtualThreadEventExecutor(EventExecutorGroup parent, Executor executor, Queue<Runnable> taskQueue,
+                                             LoomRejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, true, taskQueue, rejectedExecutionHandler);
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            Runnable task = takeTask();
+            if (task != null) {
+                safeExecute(task);
+                updateLastExecutionTime();
+            }
+
+            if (confirmShutdown()) {
+                break;
+            }
+        }
+    }
+}
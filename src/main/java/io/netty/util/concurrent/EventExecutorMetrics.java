@@ -0,0 +1,250 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Metrics of a {@link VirtualThreadEventExecutor}. Recording never allocates: counters are striped via
+ * {@link LongAdder} and durations are kept in {@link LongHistogram}s with fixed buckets, so the metrics can stay
+ * enabled in production.
+ * <p>
+ * The task latency (enqueue to run) is sampled: roughly every {@code 256}th submitted task, or every
+ * {@link #latencySampleInterval()}th, is wrapped in a
+ * {@link LatencySampledTask}, which stamps the time it was enqueued and records how long it waited once it runs. So
+ * the latency of the submitted tasks themselves is measured, and only the sampled tasks allocate.
+ * <p>
+ * With {@code -Dio.netty.loom.metrics.jmx=true} the metrics of each executor are registered as MXBean while its
+ * thread is running.
+ */
+public class EventExecutorMetrics implements EventExecutorMetricsMXBean {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorMetrics.class);
+
+    static final boolean JMX_ENABLED = SystemPropertyUtil.getBoolean("io.netty.loom.metrics.jmx", false);
+
+    /**
+     * By default every {@value}th task is sampled for its latency.
+     */
+    protected static final int DEFAULT_LATENCY_SAMPLE_INTERVAL = 256;
+
+    private final VirtualThreadEventExecutor executor;
+    private final LongAdder tasksExecuted = new LongAdder();
+    private final LongAdder tasksStolen = new LongAdder();
+    private final AtomicLong taskQueueHighWaterMark = new AtomicLong();
+    private final LongHistogram taskLatency = new LongHistogram();
+    private volatile int latencySampleMask = DEFAULT_LATENCY_SAMPLE_INTERVAL - 1;
+
+    private ObjectName objectName;
+
+    protected EventExecutorMetrics(VirtualThreadEventExecutor executor) {
+        this.executor = executor;
+    }
+
+    void tasksExecuted(int count) {
+        tasksExecuted.add(count);
+    }
+
+    void taskStolen() {
+        tasksStolen.increment();
+    }
+
+    void recordQueueDepth(int depth) {
+        for (;;) {
+            long max = taskQueueHighWaterMark.get();
+            if (depth <= max || taskQueueHighWaterMark.compareAndSet(max, depth)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the task to enqueue for the submitted task, which is either the task itself or, if this submission is
+     * sampled, a {@link LatencySampledTask} which wraps it.
+     */
+    Runnable sampleLatency(Runnable task) {
+        if ((ThreadLocalRandom.current().nextInt() & latencySampleMask) != 0) {
+            return task;
+        }
+        return new LatencySampledTask(task, System.nanoTime());
+    }
+
+    /**
+     * Samples the latency of roughly every {@code interval}th task from now on.
+     *
+     * @param interval a power of two.
+     */
+    protected final void latencySampleInterval(int interval) {
+        if (interval <= 0 || (interval & interval - 1) != 0) {
+            throw new IllegalArgumentException("interval: " + interval + " (expected: a power of two)");
+        }
+        latencySampleMask = interval - 1;
+    }
+
+    /**
+     * Returns the interval in which tasks are sampled for their latency.
+     */
+    public final int latencySampleInterval() {
+        return latencySampleMask + 1;
+    }
+
+    /**
+     * Returns the submitted task if the given queued task is a {@link LatencySampledTask}, otherwise the task itself.
+     */
+    static Runnable unwrap(Runnable task) {
+        return task instanceof LatencySampledTask ? ((LatencySampledTask) task).task : task;
+    }
+
+    /**
+     * A sampled task, which records how long it waited in the task queue before it runs. It keeps the
+     * {@link TaskPriority} of the submitted task.
+     */
+    final class LatencySampledTask implements PrioritizedTask {
+        private final Runnable task;
+        private final long enqueuedNanos;
+
+        LatencySampledTask(Runnable task, long enqueuedNanos) {
+            this.task = task;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public TaskPriority priority() {
+            return TaskPriority.of(task);
+        }
+
+        @Override
+        public void run() {
+            taskLatency.record(System.nanoTime() - enqueuedNanos);
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    @Override
+    public long getTasksExecuted() {
+        return tasksExecuted.sum();
+    }
+
+    /**
+     * Returns the number of {@link StealableTask}s this executor took from its siblings and ran.
+     */
+    @Override
+    public long getTasksStolen() {
+        return tasksStolen.sum();
+    }
+
+    @Override
+    public int getPendingTasks() {
+        return executor.pendingTasks();
+    }
+
+    @Override
+    public long getTaskQueueHighWaterMark() {
+        return taskQueueHighWaterMark.get();
+    }
+
+    /**
+     * Returns the histogram of the sampled durations in nanoseconds from enqueueing a task until it started to run.
+     */
+    public LongHistogram taskLatency() {
+        return taskLatency;
+    }
+
+    @Override
+    public long getTaskLatencySamples() {
+        return taskLatency.count();
+    }
+
+    @Override
+    public long getTaskLatencyP50() {
+        return taskLatency.percentile(50);
+    }
+
+    @Override
+    public long getTaskLatencyP99() {
+        return taskLatency.percentile(99);
+    }
+
+    @Override
+    public long getTaskLatencyP999() {
+        return taskLatency.percentile(99.9);
+    }
+
+    @Override
+    public long[] getTaskLatencyBuckets() {
+        return taskLatency.snapshot();
+    }
+
+    /**
+     * Returns the MXBean interface under which these metrics are registered.
+     */
+    protected Class<? extends EventExecutorMetricsMXBean> mxBeanInterface() {
+        return EventExecutorMetricsMXBean.class;
+    }
+
+    /**
+     * Registers these metrics with the platform {@link MBeanServer}.
+     *
+     * @param name the name which identifies the executor, for example the name of its thread.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public synchronized void registerMBean(String name) {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName objectName = new ObjectName("io.netty.loom:type=" + executor.getClass().getSimpleName() +
+                    ",name=" + ObjectName.quote(name + '@' + Integer.toHexString(System.identityHashCode(executor))));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, (Class) mxBeanInterface(), true), objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            logger.debug("Failed to register the event executor metrics MBean.", e);
+        }
+    }
+
+    /**
+     * Unregisters these metrics from the platform {@link MBeanServer} if they were registered before.
+     */
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            logger.debug("Failed to unregister the event executor metrics MBean.", e);
+        } finally {
+            objectName = null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link EventExecutorChooserFactory} which prefers the less loaded of two randomly sampled {@link EventExecutor}s
+ * ("power of two choices"). The load of an executor is derived from its registered channels, its pending tasks and
+ * the time it recently spent for I/O, so {@link EventExecutorChooser#next()} stays O(1) while long-lived and uneven
+ * connections no longer pile up on already saturated event loops.
+ * <p>
+ * Executors which do not expose these numbers are treated as idle, which degrades to a random choice.
+ */
+@UnstableApi
+public final class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LoadAwareEventExecutorChooserFactory INSTANCE = new LoadAwareEventExecutorChooserFactory();
+
+    /**
+     * The amount of I/O time that weighs as much as one registered channel or one pending task.
+     */
+    private static final long IO_TIME_UNIT_NANOS = 10000;
+
+    private LoadAwareEventExecutorChooserFactory() { }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 1) {
+            return new SingleEventExecutorChooser(executors[0]);
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors);
+    }
+
+    static long load(EventExecutor executor) {
+        if (executor instanceof VirtualThreadEventLoop) {
+            VirtualThreadEventLoop loop = (VirtualThreadEventLoop) executor;
+            return Math.max(0, loop.registeredChannels()) + loop.pendingTasks() +
+                    Math.max(0, loop.ioTimeNanos()) / IO_TIME_UNIT_NANOS;
+        }
+        if (executor instanceof VirtualThreadEventExecutor) {
+            return ((VirtualThreadEventExecutor) executor).pendingTasks();
+        }
+        if (executor instanceof SingleThreadEventLoop) {
+            SingleThreadEventLoop loop = (SingleThreadEventLoop) executor;
+            return Math.max(0, loop.registeredChannels()) + loop.pendingTasks();
+        }
+        if (executor instanceof SingleThreadEventExecutor) {
+            return ((SingleThreadEventExecutor) executor).pendingTasks();
+        }
+        return 0;
+    }
+
+    private static final class SingleEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor executor;
+
+        SingleEventExecutorChooser(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public EventExecutor next() {
+            return executor;
+        }
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors) {
+            this.executors = executors;
+        }
+
+        @Override
+        public EventExecutor next() {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final int length = executors.length;
+            int first = random.nextInt(length);
+            // Pick a second executor which is guaranteed to differ from the first one.
+            int second = (first + 1 + random.nextInt(length - 1)) % length;
+            EventExecutor a = executors[first];
+            EventExecutor b = executors[second];
+            return load(a) <= load(b) ? a : b;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative {@code long} values with a fixed set of power-of-two buckets. Bucket {@code i} counts
+ * the values {@code v} with {@code 2^(i-1) <= v < 2^i}, bucket {@code 0} counts zero. Recording a value never
+ * allocates and is safe to be called from multiple threads.
+ */
+public final class LongHistogram {
+
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records the given value. Negative values are recorded as {@code 0}.
+     */
+    public void record(long value) {
+        buckets.incrementAndGet(bucketIndex(value));
+    }
+
+    static int bucketIndex(long value) {
+        if (value <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * Returns the exclusive upper bound of the values counted by the given bucket.
+     */
+    public static long bucketUpperBound(int index) {
+        return index >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the bucket counts.
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        snapshot(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Copies the bucket counts into the given array without allocating.
+     *
+     * @param counts the array to fill, its length must be at least {@link #BUCKETS}.
+     */
+    public void snapshot(long[] counts) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains the given percentile, or {@code 0} if nothing was
+     * recorded yet.
+     *
+     * @param percentile the percentile in the range {@code (0, 100]}.
+     */
+    public long percentile(double percentile) {
+        return percentile(snapshot(), percentile);
+    }
+
+    /**
+     * Returns the upper bound of the bucket which contains the given percentile of the given bucket counts, for
+     * example the difference of two {@link #snapshot(long[])}s, or {@code 0} if the counts are empty.
+     *
+     * @param percentile the percentile in the range {@code (0, 100]}.
+     */
+    public static long percentile(long[] counts, double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0 < percentile <= 100)");
+        }
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * (percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
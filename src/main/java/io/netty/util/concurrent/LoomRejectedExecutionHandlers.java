@@ -70,4 +70,62 @@ public final class LoomRejectedExecutionHandlers {
             }
         };
     }
+
+    /**
+     * Returns a new {@link PriorityLoadSheddingRejectedExecutionHandler} which drops queued tasks of a lower
+     * {@link TaskPriority} to admit the new task, and keeps the drop counters per priority.
+     */
+    public static PriorityLoadSheddingRejectedExecutionHandler shedByPriority() {
+        return new PriorityLoadSheddingRejectedExecutionHandler();
+    }
+
+    /**
+     * Like {@link #shedByPriority()} but bounds the task queues of the event loops which use it to
+     * {@code maxPendingTasks}, so it takes effect even if no other bound is configured.
+     */
+    public static PriorityLoadSheddingRejectedExecutionHandler shedByPriority(int maxPendingTasks) {
+        return new PriorityLoadSheddingRejectedExecutionHandler(maxPendingTasks);
+    }
+
+    /**
+     * Parks the submitting thread until the task could be added to the task queue. The event loop wakes the waiting
+     * threads up once it drained its task queue to half of its capacity, so {@code maxPendingTasks} blocks producers
+     * like a bounded {@link java.util.concurrent.BlockingQueue} instead of failing them. This is cheap for virtual
+     * threads as they release their carrier while parked.
+     * <p>
+     * Tasks which are added from within the event loop are rejected right away as the event loop would wait for
+     * itself.
+     */
+    public static LoomRejectedExecutionHandler park() {
+        return park(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Like {@link #park()} but gives up and throws a {@link RejectedExecutionException} if the task could not be
+     * added within the given timeout.
+     *
+     * @param timeout the maximum time to wait, or {@code 0} to wait without a deadline.
+     */
+    public static LoomRejectedExecutionHandler park(long timeout, TimeUnit unit) {
+        ObjectUtil.checkPositiveOrZero(timeout, "timeout");
+        final long timeoutNanos = unit.toNanos(timeout);
+        return new LoomRejectedExecutionHandler() {
+            @Override
+            public void rejected(Runnable task, VirtualThreadEventExecutor executor) {
+                if (executor.inEventLoop()) {
+                    throw new RejectedExecutionException("Task queue is full and the task was added from within the"
+                            + " event loop");
+                }
+                try {
+                    if (executor.parkUntilOffered(task, timeoutNanos)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for capacity", e);
+                }
+                throw new RejectedExecutionException("Task queue is still full after " + timeoutNanos + "ns");
+            }
+        };
+    }
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.shaded.org.jctools.queues.MessagePassingQueue;
+
+/**
+ * {@link BlockingQueue} for multiple producers and a <strong>single</strong> consumer. It is backed by a lock-free
+ * MPSC queue and blocks the consumer by parking it instead of waiting on a lock. Producers only call
+ * {@link LockSupport#unpark(Thread)} if the consumer announced that it is about to park, so submitting to a busy
+ * consumer costs nothing but the enqueue. Parking and unparking a virtual thread is much cheaper than waking up a
+ * {@link java.nio.channels.Selector}.
+ * <p>
+ * A bounded instance enforces its capacity exactly by reserving a slot before each enqueue. Producers which wait
+ * for capacity in {@link #put(Object)} or {@link #offer(Object, long, TimeUnit)} block on a condition which the
+ * consumer signals after it took an element, the consumer only takes the lock if a producer is waiting.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public final class ParkingMpscBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final AtomicIntegerFieldUpdater<ParkingMpscBlockingQueue> PARKED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ParkingMpscBlockingQueue.class, "parked");
+    private static final AtomicIntegerFieldUpdater<ParkingMpscBlockingQueue> RESERVED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ParkingMpscBlockingQueue.class, "reserved");
+
+    private final Queue<E> queue;
+    private final int capacity;
+    private volatile Thread consumer;
+    @SuppressWarnings("unused")
+    private volatile int parked;
+    // The number of slots taken by producers, only maintained if the queue is bounded.
+    private volatile int reserved;
+    private final Lock capacityLock = new ReentrantLock();
+    private final Condition notFull = capacityLock.newCondition();
+    private volatile int capacityWaiters;
+
+    /**
+     * Create a new unbounded instance.
+     */
+    public ParkingMpscBlockingQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity the maximum number of elements, or {@link Integer#MAX_VALUE} if the queue should be unbounded.
+     */
+    public ParkingMpscBlockingQueue(int capacity) {
+        this.capacity = ObjectUtil.checkPositive(capacity, "capacity");
+        // The bounded MPSC queues round their capacity up to a power of two, so the bound is enforced by reserve().
+        queue = PlatformDependent.newMpscQueue();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        ObjectUtil.checkNotNull(e, "e");
+        if (reserve(1) == 0) {
+            return false;
+        }
+        queue.offer(e);
+        // Only pay for the unpark if the consumer is (about to be) parked.
+        if (parked != 0 && PARKED_UPDATER.getAndSet(this, 0) != 0) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Takes up to {@code n} slots and returns how many were taken.
+     */
+    private int reserve(int n) {
+        if (capacity == Integer.MAX_VALUE) {
+            return n;
+        }
+        for (;;) {
+            int reserved = this.reserved;
+            int taken = Math.min(n, capacity - reserved);
+            if (taken <= 0) {
+                return 0;
+            }
+            if (RESERVED_UPDATER.compareAndSet(this, reserved, reserved + taken)) {
+                return taken;
+            }
+        }
+    }
+
+    /**
+     * Gives {@code n} slots back after the consumer took elements, and signals the waiting producers.
+     */
+    private void release(int n) {
+        if (capacity == Integer.MAX_VALUE) {
+            return;
+        }
+        RESERVED_UPDATER.addAndGet(this, -n);
+        if (capacityWaiters != 0) {
+            capacityLock.lock();
+            try {
+                if (n == 1) {
+                    notFull.signal();
+                } else {
+                    notFull.signalAll();
+                }
+            } finally {
+                capacityLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds the elements of the given array in order, in bulk if the backing queue supports it, and unparks the
+     * consumer at most once.
+     *
+     * @return the number of leading elements which were added, less than {@code elements.length} if the queue is
+     *         full.
+     */
+    public int offerAll(E[] elements) {
+        for (E e: elements) {
+            ObjectUtil.checkNotNull(e, "e");
+        }
+        final int reserved = reserve(elements.length);
+        int offered = 0;
+        if (queue instanceof MessagePassingQueue) {
+            @SuppressWarnings("unchecked")
+            MessagePassingQueue<E> mpq = (MessagePassingQueue<E>) queue;
+            ArraySupplier<E> supplier = new ArraySupplier<E>(elements);
+            while (offered < reserved) {
+                // fill(...) may add less than requested at chunk boundaries, so retry until all reserved slots are
+                // used. The queue is unbounded, so it does not run out of space.
+                offered += Math.max(0, mpq.fill(supplier, reserved - offered));
+            }
+        } else {
+            while (offered < reserved) {
+                queue.offer(elements[offered++]);
+            }
+        }
+        if (offered > 0 && parked != 0 && PARKED_UPDATER.getAndSet(this, 0) != 0) {
+            LockSupport.unpark(consumer);
+        }
+        return offered;
+    }
+
+    private static final class ArraySupplier<E> implements MessagePassingQueue.Supplier<E> {
+        private final E[] elements;
+        private int index;
+
+        ArraySupplier(E[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public E get() {
+            return elements[index++];
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+        capacityLock.lockInterruptibly();
+        try {
+            // Announce the waiter before offering again, so the consumer can not miss it after it took an element.
+            capacityWaiters++;
+            try {
+                while (!offer(e)) {
+                    notFull.await();
+                }
+            } finally {
+                capacityWaiters--;
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        capacityLock.lockInterruptibly();
+        try {
+            capacityWaiters++;
+            try {
+                while (!offer(e)) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                capacityWaiters--;
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        E e = queue.poll();
+        if (e != null) {
+            release(1);
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            park(0);
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (;;) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            long nanos = deadline - System.nanoTime();
+            if (nanos <= 0) {
+                return null;
+            }
+            park(nanos);
+        }
+    }
+
+    private void park(long nanos) throws InterruptedException {
+        consumer = Thread.currentThread();
+        // Announce that we are going to park and check the queue again so we can not miss a wakeup of a producer
+        // that enqueued after our last poll but before it could observe the flag.
+        parked = 1;
+        try {
+            if (queue.isEmpty()) {
+                if (nanos > 0) {
+                    LockSupport.parkNanos(this, nanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            parked = 0;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity == Integer.MAX_VALUE ? Integer.MAX_VALUE : capacity - reserved;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        ObjectUtil.checkNotNull(c, "c");
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = queue.poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        if (n > 0) {
+            release(n);
+        }
+        return n;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+}
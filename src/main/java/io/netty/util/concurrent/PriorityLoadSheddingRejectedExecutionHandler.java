@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * {@link LoomRejectedExecutionHandler} which sheds load by {@link TaskPriority}. If the task queue is full it
+ * removes the oldest queued task of the lowest priority which is below the priority of the new task and admits the
+ * new task instead. Only if there is no such task the new task is rejected. So {@link TaskPriority#IO} tasks keep
+ * writes and connection teardown moving while application tasks flood the event loop.
+ * <p>
+ * A shed task which is a {@link java.util.concurrent.Future} is cancelled, otherwise it is logged at debug level.
+ * The number of shed and rejected tasks is counted per priority, an instance is meant to be shared by all executors
+ * of a group.
+ * <p>
+ * Finding a task to shed iterates the task queue, which only happens while the queue is full. Task queues which do
+ * not support {@link java.util.Queue#remove(Object)} can not shed and reject the new task, so event loops which use
+ * this handler create their task queue with {@link #newTaskQueue(int)}, which is bounded by the
+ * {@code maxPendingTasks} of this handler.
+ */
+public final class PriorityLoadSheddingRejectedExecutionHandler implements LoomRejectedExecutionHandler {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(PriorityLoadSheddingRejectedExecutionHandler.class);
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+    private final LongAdder[] dropped = new LongAdder[PRIORITIES.length];
+    private final int maxPendingTasks;
+
+    public PriorityLoadSheddingRejectedExecutionHandler() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxPendingTasks the capacity of the task queues created by {@link #newTaskQueue(int)}.
+     */
+    public PriorityLoadSheddingRejectedExecutionHandler(int maxPendingTasks) {
+        this.maxPendingTasks = ObjectUtil.checkPositive(maxPendingTasks, "maxPendingTasks");
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns a task queue which supports {@link java.util.Queue#remove(Object)}, so queued tasks can be shed. Its
+     * capacity is the smaller one of {@code maxPendingTasks} and the capacity of this handler.
+     */
+    public Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return new LinkedBlockingQueue<Runnable>(Math.min(maxPendingTasks, this.maxPendingTasks));
+    }
+
+    @Override
+    public void rejected(Runnable task, VirtualThreadEventExecutor executor) {
+        TaskPriority priority = TaskPriority.of(task);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Runnable victim = executor.lowestPriorityQueuedTask(priority);
+            if (victim == null) {
+                break;
+            }
+            if (executor.removeQueuedTask(victim)) {
+                shed(victim);
+            }
+            if (executor.offerTask(task)) {
+                return;
+            }
+        }
+        dropped[priority.ordinal()].increment();
+        throw new RejectedExecutionException("Task queue is full and holds no task with a priority below " + priority);
+    }
+
+    private void shed(Runnable victim) {
+        TaskPriority priority = TaskPriority.of(victim);
+        dropped[priority.ordinal()].increment();
+        Runnable task = EventExecutorMetrics.unwrap(victim);
+        if (task instanceof java.util.concurrent.Future) {
+            ((java.util.concurrent.Future<?>) task).cancel(false);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Shed queued {} task {} to admit a task of higher priority.", priority, victim);
+        }
+    }
+
+    /**
+     * Returns the number of tasks of the given priority which were shed from a task queue or rejected.
+     */
+    public long droppedTasks(TaskPriority priority) {
+        return dropped[priority.ordinal()].sum();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+
+/**
+ * Hierarchical hashed timer wheel which holds the {@link WheelScheduledFutureTask}s of a
+ * {@link VirtualThreadEventExecutor}. It replaces the {@code O(log n)} priority queue of
+ * {@link AbstractScheduledEventExecutor} by {@code O(1)} insertion and removal, and expires all tasks of a tick at
+ * once, which matters when every connection keeps its own idle or read timeout.
+ * <p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots each. Level {@code n} covers
+ * {@code SLOTS^(n + 1)} ticks, tasks are moved down one level whenever the lower level completed a rotation. A task
+ * is never expired before its deadline but up to one tick after it.
+ * <p>
+ * Instances are not thread-safe and must only be accessed from the event loop.
+ */
+final class ScheduledTaskWheel {
+
+    static final int LEVELS = 4;
+    static final int SLOTS = 256;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_TICKS = 1L << (LEVELS * SLOT_BITS);
+
+    static final int NOT_QUEUED = -1;
+    static final int EXPIRED = -2;
+
+    private final long tickNanos;
+    private final WheelScheduledFutureTask<?>[] heads = new WheelScheduledFutureTask<?>[LEVELS * SLOTS];
+    private final WheelScheduledFutureTask<?>[] tails = new WheelScheduledFutureTask<?>[LEVELS * SLOTS];
+
+    // Expired tasks which were not polled yet, in the order of their ticks.
+    private WheelScheduledFutureTask<?> expiredHead;
+    private WheelScheduledFutureTask<?> expiredTail;
+
+    // All ticks before currentTick were expired.
+    private long currentTick;
+    private int size;
+    private long cachedDeadlineNanos = -1;
+    private boolean deadlineDirty;
+
+    /**
+     * @param tickNanos the duration of a tick, which is also the resolution of the wheel.
+     * @param nanoTime  the current time as returned by {@link AbstractScheduledEventExecutor#nanoTime()}.
+     */
+    ScheduledTaskWheel(long tickNanos, long nanoTime) {
+        this.tickNanos = ObjectUtil.checkPositive(tickNanos, "tickNanos");
+        currentTick = nanoTime / tickNanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the given task. A task whose deadline has already passed is expired with the next call of
+     * {@link #poll(long)}.
+     */
+    void add(WheelScheduledFutureTask<?> task) {
+        assert task.bucket == NOT_QUEUED;
+        insert(task);
+        size++;
+        if (!deadlineDirty) {
+            long fireNanos = fireTimeNanos(task);
+            if (cachedDeadlineNanos == -1 || fireNanos < cachedDeadlineNanos) {
+                cachedDeadlineNanos = fireNanos;
+            }
+        }
+    }
+
+    /**
+     * Removes the given task if it is still held by this wheel.
+     */
+    boolean remove(WheelScheduledFutureTask<?> task) {
+        int bucket = task.bucket;
+        if (bucket == NOT_QUEUED) {
+            return false;
+        }
+        WheelScheduledFutureTask<?> prev = task.prev;
+        WheelScheduledFutureTask<?> next = task.next;
+        if (prev == null) {
+            if (bucket == EXPIRED) {
+                expiredHead = next;
+            } else {
+                heads[bucket] = next;
+            }
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            if (bucket == EXPIRED) {
+                expiredTail = prev;
+            } else {
+                tails[bucket] = prev;
+            }
+        } else {
+            next.prev = prev;
+        }
+        unlinked(task);
+        size--;
+        deadlineDirty = true;
+        return true;
+    }
+
+    /**
+     * Returns the next task whose deadline is not after {@code nanoTime}, or {@code null} if there is none.
+     */
+    WheelScheduledFutureTask<?> poll(long nanoTime) {
+        if (expiredHead == null) {
+            advance(nanoTime);
+        }
+        WheelScheduledFutureTask<?> task = expiredHead;
+        if (task == null) {
+            return null;
+        }
+        expiredHead = task.next;
+        if (expiredHead == null) {
+            expiredTail = null;
+        } else {
+            expiredHead.prev = null;
+        }
+        unlinked(task);
+        size--;
+        return task;
+    }
+
+    /**
+     * Returns the point in time (relative to {@link AbstractScheduledEventExecutor#nanoTime()}) at which the wheel
+     * has to be polled next, or {@code -1} if it is empty. The returned value is never after the deadline of any held
+     * task.
+     */
+    long nextDeadlineNanos() {
+        if (expiredHead != null) {
+            return expiredHead.deadlineNanos();
+        }
+        if (size == 0) {
+            return -1;
+        }
+        if (deadlineDirty) {
+            cachedDeadlineNanos = computeNextDeadlineNanos();
+            deadlineDirty = false;
+        }
+        return cachedDeadlineNanos;
+    }
+
+    /**
+     * Removes all tasks and cancels them.
+     */
+    void cancelAll() {
+        if (size == 0) {
+            return;
+        }
+        cancelAll(expiredHead);
+        expiredHead = expiredTail = null;
+        for (int i = 0; i < heads.length; i++) {
+            cancelAll(heads[i]);
+            heads[i] = tails[i] = null;
+        }
+        size = 0;
+        cachedDeadlineNanos = -1;
+        deadlineDirty = false;
+    }
+
+    private static void cancelAll(WheelScheduledFutureTask<?> task) {
+        while (task != null) {
+            WheelScheduledFutureTask<?> next = task.next;
+            unlinked(task);
+            task.cancelWithoutRemove(false);
+            task = next;
+        }
+    }
+
+    private void advance(long nanoTime) {
+        long targetTick = nanoTime / tickNanos;
+        if (targetTick <= currentTick) {
+            return;
+        }
+        if (size == 0) {
+            currentTick = targetTick;
+            return;
+        }
+        deadlineDirty = true;
+        while (currentTick < targetTick) {
+            // Cascade the upper levels first so tasks can move down more than one level for the same tick.
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            int bucket = (int) (currentTick & SLOT_MASK);
+            WheelScheduledFutureTask<?> head = heads[bucket];
+            if (head != null) {
+                // Move the whole slot to the expired list at once.
+                for (WheelScheduledFutureTask<?> task = head; task != null; task = task.next) {
+                    task.bucket = EXPIRED;
+                }
+                if (expiredTail == null) {
+                    expiredHead = head;
+                } else {
+                    expiredTail.next = head;
+                    head.prev = expiredTail;
+                }
+                expiredTail = tails[bucket];
+                heads[bucket] = tails[bucket] = null;
+            }
+            currentTick++;
+        }
+    }
+
+    private void cascade(int level) {
+        int bucket = level * SLOTS + (int) ((currentTick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        WheelScheduledFutureTask<?> task = heads[bucket];
+        heads[bucket] = tails[bucket] = null;
+        while (task != null) {
+            WheelScheduledFutureTask<?> next = task.next;
+            unlinked(task);
+            insert(task);
+            task = next;
+        }
+    }
+
+    private void insert(WheelScheduledFutureTask<?> task) {
+        long tick = Math.max(task.deadlineNanos() / tickNanos, currentTick);
+        long delta = tick - currentTick;
+        if (delta >= MAX_TICKS) {
+            // Park it in the slot which is cascaded last, it is re-inserted from there.
+            tick = currentTick + MAX_TICKS - 1;
+            delta = MAX_TICKS - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << ((level + 1) * SLOT_BITS)) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((tick >>> (level * SLOT_BITS)) & SLOT_MASK);
+        WheelScheduledFutureTask<?> tail = tails[bucket];
+        task.bucket = bucket;
+        task.prev = tail;
+        if (tail == null) {
+            heads[bucket] = task;
+        } else {
+            tail.next = task;
+        }
+        tails[bucket] = task;
+    }
+
+    private long computeNextDeadlineNanos() {
+        long deadlineNanos = -1;
+        // Level 0 holds exactly one tick per slot.
+        for (int i = 0; i < SLOTS; i++) {
+            long tick = currentTick + i;
+            if (heads[(int) (tick & SLOT_MASK)] != null) {
+                deadlineNanos = (tick + 1) * tickNanos;
+                break;
+            }
+        }
+        // The upper levels are cascaded when the first tick of their slot is expired, which is the earliest time any
+        // of their tasks may expire. This may well be before the next level 0 slot.
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            long nextSlot = nextCascadeSlot(shift);
+            for (int i = 0; i < SLOTS; i++) {
+                long slot = nextSlot + i;
+                if (heads[level * SLOTS + (int) (slot & SLOT_MASK)] != null) {
+                    long cascadeNanos = ((slot << shift) + 1) * tickNanos;
+                    if (deadlineNanos == -1 || cascadeNanos < deadlineNanos) {
+                        deadlineNanos = cascadeNanos;
+                    }
+                    break;
+                }
+            }
+        }
+        return deadlineNanos;
+    }
+
+    private long fireTimeNanos(WheelScheduledFutureTask<?> task) {
+        int bucket = task.bucket;
+        if (bucket < SLOTS) {
+            return (Math.max(task.deadlineNanos() / tickNanos, currentTick) + 1) * tickNanos;
+        }
+        // Upper levels, see computeNextDeadlineNanos().
+        int shift = (bucket / SLOTS) * SLOT_BITS;
+        long slot = nextCascadeSlot(shift);
+        slot += ((bucket & SLOT_MASK) - slot) & SLOT_MASK;
+        return ((slot << shift) + 1) * tickNanos;
+    }
+
+    /**
+     * Returns the next slot of the level with the given shift which is cascaded. The current tick was not expired
+     * yet, so this is the current slot if the current tick is its first one.
+     */
+    private long nextCascadeSlot(int shift) {
+        return (currentTick + (1L << shift) - 1) >>> shift;
+    }
+
+    private static void unlinked(WheelScheduledFutureTask<?> task) {
+        task.prev = task.next = null;
+        task.bucket = NOT_QUEUED;
+    }
+}
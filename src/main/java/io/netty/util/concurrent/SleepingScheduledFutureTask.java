@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link ScheduledFuture} of a task which waits for its deadline in a parked virtual thread of its own and submits
+ * itself to its {@link VirtualThreadEventExecutor} once the deadline has passed. The event loop never sees the task
+ * before it is due, so it does not affect how long the event loop may block.
+ * <p>
+ * Cancelling the task just unparks the waiting virtual thread, the event loop is not involved.
+ */
+final class SleepingScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+
+    private static final ThreadFactory SLEEPER_FACTORY =
+            new DefaultVirtualThreadFactory("virtualThreadEventExecutorTimer", true);
+
+    private volatile long deadlineNanos;
+    /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
+    private final long periodNanos;
+    private volatile Thread sleeper;
+
+    SleepingScheduledFutureTask(VirtualThreadEventExecutor executor, Runnable runnable, long nanoTime, long period) {
+        super(executor, runnable, null);
+        deadlineNanos = nanoTime;
+        periodNanos = period;
+    }
+
+    SleepingScheduledFutureTask(VirtualThreadEventExecutor executor, Callable<V> callable, long nanoTime) {
+        super(executor, callable);
+        deadlineNanos = nanoTime;
+        periodNanos = 0;
+    }
+
+    private VirtualThreadEventExecutor scheduledExecutor() {
+        return (VirtualThreadEventExecutor) executor();
+    }
+
+    public long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public long delayNanos() {
+        return Math.max(0, deadlineNanos - ScheduledFutureTask.nanoTime());
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delayNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (this == o) {
+            return 0;
+        }
+        long d = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+        return d < 0 ? -1 : d > 0 ? 1 : 0;
+    }
+
+    /**
+     * Starts the virtual thread which waits for the deadline.
+     */
+    void startSleeper() {
+        Thread sleeper = SLEEPER_FACTORY.newThread(new Runnable() {
+            @Override
+            public void run() {
+                sleep();
+            }
+        });
+        this.sleeper = sleeper;
+        sleeper.start();
+    }
+
+    private void sleep() {
+        for (;;) {
+            if (isCancelled()) {
+                return;
+            }
+            long delayNanos = delayNanos();
+            if (delayNanos <= 0) {
+                break;
+            }
+            LockSupport.parkNanos(this, delayNanos);
+        }
+        sleeper = null;
+        VirtualThreadEventExecutor executor = scheduledExecutor();
+        try {
+            executor.execute(this);
+        } catch (Throwable cause) {
+            // The executor was shut down or its task queue is full.
+            executor.sleepingTaskDone(this);
+            tryFailureInternal(cause);
+        }
+    }
+
+    @Override
+    public void run() {
+        assert executor().inEventLoop();
+        try {
+            if (periodNanos == 0) {
+                scheduledExecutor().sleepingTaskDone(this);
+                if (setUncancellableInternal()) {
+                    V result = runTask();
+                    setSuccessInternal(result);
+                }
+            } else {
+                // check if is done as it may was cancelled
+                if (!isCancelled()) {
+                    runTask();
+                    if (!executor().isShutdown()) {
+                        if (periodNanos > 0) {
+                            deadlineNanos += periodNanos;
+                        } else {
+                            deadlineNanos = ScheduledFutureTask.nanoTime() - periodNanos;
+                        }
+                        if (!isCancelled()) {
+                            startSleeper();
+                        }
+                    }
+                }
+            }
+        } catch (Throwable cause) {
+            scheduledExecutor().sleepingTaskDone(this);
+            setFailureInternal(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param mayInterruptIfRunning this value has no effect in this implementation.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean canceled = super.cancel(mayInterruptIfRunning);
+        if (canceled) {
+            scheduledExecutor().sleepingTaskDone(this);
+            Thread sleeper = this.sleeper;
+            if (sleeper != null) {
+                LockSupport.unpark(sleeper);
+            }
+        }
+        return canceled;
+    }
+
+    @Override
+    protected StringBuilder toStringBuilder() {
+        StringBuilder buf = super.toStringBuilder();
+        buf.setCharAt(buf.length() - 1, ',');
+
+        return buf.append(" deadline: ")
+                  .append(deadlineNanos)
+                  .append(", period: ")
+                  .append(periodNanos)
+                  .append(')');
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+/**
+ * Marker interface for tasks which are not bound to the {@link VirtualThreadEventExecutor} they are submitted to,
+ * for example work which is offloaded to an event loop and does not touch any channel. With
+ * {@code -Dio.netty.eventexecutor.workStealing=true} an idle sibling in the same
+ * {@link VirtualThreadEventExecutorGroup} may run such a task instead.
+ * <p>
+ * A stealable task is not ordered with respect to any other task of the executor, and it may run on another thread
+ * than the one which {@link EventExecutor#inEventLoop()} returns {@code true} for. Tasks which do not implement this
+ * interface keep the ordering of the {@link OrderedEventExecutor}.
+ */
+public interface StealableTask extends Runnable {
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+
+/**
+ * Priority class of a task which is submitted to a {@link VirtualThreadEventExecutor}. It does not change the order
+ * in which the tasks run, it only decides which tasks a {@link PriorityLoadSheddingRejectedExecutionHandler} drops
+ * first when the task queue is full.
+ */
+public enum TaskPriority {
+    /**
+     * Background work like flushing metrics, which is dropped first.
+     */
+    BACKGROUND,
+    /**
+     * Tasks of the application. This is the priority of all tasks which are not tagged otherwise.
+     */
+    USER,
+    /**
+     * Writes, flushes, closes and (de)registrations of channels, which keep connections and their teardown moving,
+     * as well as the internal tasks of handlers and executors. Netty submits these tasks itself, they are recognized
+     * by being declared in one of its packages. Writes hold the messages to write, so dropping them would leak.
+     */
+    IO;
+
+    private static final String[] INTERNAL_PACKAGES = {
+            "io.netty.channel.", "io.netty.handler.", "io.netty.util.concurrent."
+    };
+
+    /**
+     * Returns the priority of the given task.
+     */
+    public static TaskPriority of(Runnable task) {
+        if (task instanceof PrioritizedTask) {
+            return ((PrioritizedTask) task).priority();
+        }
+        if (task instanceof PromiseTask) {
+            // submit(...) and schedule(...) wrap the task of the caller.
+            return USER;
+        }
+        String className = task.getClass().getName();
+        for (String internalPackage : INTERNAL_PACKAGES) {
+            if (className.startsWith(internalPackage)) {
+                return IO;
+            }
+        }
+        return USER;
+    }
+
+    /**
+     * Returns a {@link Runnable} which runs the given task and has this priority.
+     */
+    public Runnable tag(final Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        return new PrioritizedTask() {
+            @Override
+            public TaskPriority priority() {
+                return TaskPriority.this;
+            }
+
+            @Override
+            public void run() {
+                task.run();
+            }
+        };
+    }
+}
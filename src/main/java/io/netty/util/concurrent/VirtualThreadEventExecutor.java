@@ -20,18 +20,23 @@ import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.shaded.org.jctools.queues.MessagePassingQueue;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.lang.Thread.State;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
@@ -40,8 +45,12 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Abstract base class for {@link OrderedEventExecutor}'s that execute all its submitted tasks in a single thread.
@@ -52,6 +61,21 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
     static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
 
+    private static final boolean PARKING_TASK_QUEUE =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.parkingTaskQueue", false);
+
+    private static final boolean TIMER_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.timerWheel", false);
+    private static final long TIMER_WHEEL_TICK_NANOS = TimeUnit.MICROSECONDS.toNanos(
+            Math.max(1, SystemPropertyUtil.getLong("io.netty.eventexecutor.timerWheel.tickMicros", 1000)));
+    private static final boolean SLEEPING_TIMERS =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.sleepingTimers", false);
+    private static final boolean WORK_STEALING =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.workStealing", false);
+    // A sibling is only robbed if it has at least this many stealable tasks queued.
+    private static final int STEAL_THRESHOLD = 2;
+    private static final int MAX_STOLEN_TASKS_PER_RUN = 16;
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(VirtualThreadEventExecutor.class);
 
@@ -87,6 +111,29 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
     private final boolean addTaskWakesUp;
     private final int maxPendingTasks;
     private final LoomRejectedExecutionHandler rejectedExecutionHandler;
+    private final Lock capacityLock = new ReentrantLock();
+    private final Condition capacityAvailable = capacityLock.newCondition();
+    // Only modified while holding the capacityLock.
+    private volatile int capacityWaiters;
+
+    // Owner polls the head, thieves poll the tail.
+    private final Deque<Runnable> stealableTasks = WORK_STEALING ? new ConcurrentLinkedDeque<Runnable>() : null;
+    private final AtomicInteger stealableTaskCount = new AtomicInteger();
+    // Enqueued into the taskQueue once per stealable task, so the owner runs them in submission order.
+    private final Runnable stealableTaskRunner = new Runnable() {
+        @Override
+        public void run() {
+            Runnable task = pollStealableTask(false);
+            if (task != null) {
+                task.run();
+            }
+        }
+    };
+    private final EventExecutorMetrics metrics;
+    private final ScheduledTaskWheel timerWheel;
+    private final Set<SleepingScheduledFutureTask<?>> sleepingTasks = SLEEPING_TIMERS ?
+            Collections.newSetFromMap(
+                    PlatformDependent.<SleepingScheduledFutureTask<?>, Boolean>newConcurrentHashMap()) : null;
 
     private long lastExecutionTime;
 
@@ -157,6 +204,8 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         this.addTaskWakesUp = addTaskWakesUp;
         this.maxPendingTasks = Math.max(16, maxPendingTasks);
         this.executor = ThreadExecutorMap.apply(executor, this);
+        this.metrics = newMetrics();
+        timerWheel = newTimerWheel();
         taskQueue = newTaskQueue(this.maxPendingTasks);
         rejectedExecutionHandler = ObjectUtil.checkNotNull(rejectedHandler, "rejectedHandler");
     }
@@ -168,10 +217,26 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         this.addTaskWakesUp = addTaskWakesUp;
         this.maxPendingTasks = DEFAULT_MAX_PENDING_EXECUTOR_TASKS;
         this.executor = ThreadExecutorMap.apply(executor, this);
+        this.metrics = newMetrics();
+        timerWheel = newTimerWheel();
         this.taskQueue = ObjectUtil.checkNotNull(taskQueue, "taskQueue");
         this.rejectedExecutionHandler = ObjectUtil.checkNotNull(rejectedHandler, "rejectedHandler");
     }
 
+    /**
+     * Returns the {@link ScheduledTaskWheel} which holds the scheduled tasks instead of the priority queue of
+     * {@link AbstractScheduledEventExecutor} if {@code -Dio.netty.eventexecutor.timerWheel=true} is set, or
+     * {@code null} otherwise. The resolution of the wheel is set with
+     * {@code -Dio.netty.eventexecutor.timerWheel.tickMicros} and defaults to one millisecond.
+     * {@code -Dio.netty.eventexecutor.sleepingTimers=true} takes precedence over the timer wheel.
+     */
+    private static ScheduledTaskWheel newTimerWheel() {
+        if (!TIMER_WHEEL || SLEEPING_TIMERS) {
+            return null;
+        }
+        return new ScheduledTaskWheel(TIMER_WHEEL_TICK_NANOS, ScheduledFutureTask.nanoTime());
+    }
+
     /**
      * @deprecated Please use and override {@link #newTaskQueue(int)}.
      */
@@ -185,11 +250,32 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      * {@link LinkedBlockingQueue} but if your sub-class of {@link SingleThreadEventExecutor} will not do any blocking
      * calls on the this {@link Queue} it may make sense to {@code @Override} this and return some more performant
      * implementation that does not support blocking operations at all.
+     * <p>
+     * If {@code -Dio.netty.eventexecutor.parkingTaskQueue=true} is set a {@link ParkingMpscBlockingQueue} is
+     * returned instead, which blocks in {@link #takeTask()} by parking the executor thread.
      */
     protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        if (PARKING_TASK_QUEUE) {
+            return new ParkingMpscBlockingQueue<Runnable>(maxPendingTasks);
+        }
         return new LinkedBlockingQueue<Runnable>(maxPendingTasks);
     }
 
+    /**
+     * Create the {@link EventExecutorMetrics} of this instance. Sub-classes may return a sub-type which records
+     * additional metrics.
+     */
+    protected EventExecutorMetrics newMetrics() {
+        return new EventExecutorMetrics(this);
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetrics} of this instance.
+     */
+    public EventExecutorMetrics metrics() {
+        return metrics;
+    }
+
     /**
      * Interrupt the current running {@link Thread}.
      */
@@ -207,7 +293,9 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      */
     protected Runnable pollTask() {
         assert inEventLoop();
-        return pollTaskFrom(taskQueue);
+        Runnable task = pollTaskFrom(taskQueue);
+        signalCapacityWaitersIfDrained();
+        return task;
     }
 
     protected static Runnable pollTaskFrom(Queue<Runnable> taskQueue) {
@@ -235,21 +323,33 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         }
 
         BlockingQueue<Runnable> taskQueue = (BlockingQueue<Runnable>) this.taskQueue;
+        metrics.recordQueueDepth(taskQueue.size());
         for (;;) {
-            ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-            if (scheduledTask == null) {
+            if (stealableTasks != null && taskQueue.isEmpty()) {
+                // Rather help a busy sibling than block.
+                Runnable stolen = stealTask();
+                if (stolen != null) {
+                    metrics.tasksExecuted(1);
+                    return stolen;
+                }
+            }
+            long deadlineNanos = nextTimerDeadlineNanos();
+            if (deadlineNanos == -1) {
                 Runnable task = null;
                 try {
                     task = taskQueue.take();
+                    signalCapacityWaitersIfDrained();
                     if (task == WAKEUP_TASK) {
                         task = null;
+                    } else {
+                        metrics.tasksExecuted(1);
                     }
                 } catch (InterruptedException e) {
                     // Ignore
                 }
                 return task;
             } else {
-                long delayNanos = scheduledTask.delayNanos();
+                long delayNanos = deadlineNanos - ScheduledFutureTask.nanoTime();
                 Runnable task = null;
                 if (delayNanos > 0) {
                     try {
@@ -269,6 +369,10 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
                 }
 
                 if (task != null) {
+                    signalCapacityWaitersIfDrained();
+                    if (task != WAKEUP_TASK) {
+                        metrics.tasksExecuted(1);
+                    }
                     return task;
                 }
             }
@@ -276,6 +380,20 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
     }
 
     private boolean fetchFromScheduledTaskQueue() {
+        if (timerWheel != null && timerWheel.size() > 0) {
+            long nanoTime = AbstractScheduledEventExecutor.nanoTime();
+            for (;;) {
+                WheelScheduledFutureTask<?> scheduledTask = timerWheel.poll(nanoTime);
+                if (scheduledTask == null) {
+                    break;
+                }
+                if (!taskQueue.offer(scheduledTask)) {
+                    // No space left in the task queue add it back to the wheel so we pick it up again.
+                    timerWheel.add(scheduledTask);
+                    return false;
+                }
+            }
+        }
         if (scheduledTaskQueue == null || scheduledTaskQueue.isEmpty()) {
             return true;
         }
@@ -297,17 +415,39 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      * @return {@code true} if at least one scheduled task was executed.
      */
     private boolean executeExpiredScheduledTasks() {
+        boolean executedWheelTasks = timerWheel != null && executeExpiredWheelTasks();
         if (scheduledTaskQueue == null || scheduledTaskQueue.isEmpty()) {
-            return false;
+            return executedWheelTasks;
         }
         long nanoTime = AbstractScheduledEventExecutor.nanoTime();
         Runnable scheduledTask = pollScheduledTask(nanoTime);
         if (scheduledTask == null) {
-            return false;
+            return executedWheelTasks;
         }
+        int executed = 0;
         do {
             safeExecute(scheduledTask);
+            executed++;
         } while ((scheduledTask = pollScheduledTask(nanoTime)) != null);
+        metrics.tasksExecuted(executed);
+        return true;
+    }
+
+    private boolean executeExpiredWheelTasks() {
+        if (timerWheel.size() == 0) {
+            return false;
+        }
+        long nanoTime = AbstractScheduledEventExecutor.nanoTime();
+        Runnable scheduledTask = timerWheel.poll(nanoTime);
+        if (scheduledTask == null) {
+            return false;
+        }
+        int executed = 0;
+        do {
+            safeExecute(scheduledTask);
+            executed++;
+        } while ((scheduledTask = timerWheel.poll(nanoTime)) != null);
+        metrics.tasksExecuted(executed);
         return true;
     }
 
@@ -352,11 +492,109 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         return taskQueue.offer(task);
     }
 
+    /**
+     * Returns the oldest queued task of the lowest {@link TaskPriority} which is below {@code priority}, or
+     * {@code null} if there is none or the task queue can not be iterated.
+     */
+    final Runnable lowestPriorityQueuedTask(TaskPriority priority) {
+        Runnable lowest = null;
+        TaskPriority lowestPriority = priority;
+        try {
+            for (Runnable queued: taskQueue) {
+                if (queued == WAKEUP_TASK || queued == stealableTaskRunner) {
+                    continue;
+                }
+                TaskPriority queuedPriority = TaskPriority.of(queued);
+                if (queuedPriority.compareTo(lowestPriority) < 0) {
+                    lowest = queued;
+                    lowestPriority = queuedPriority;
+                    if (lowestPriority.ordinal() == 0) {
+                        break;
+                    }
+                }
+            }
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        return lowest;
+    }
+
+    final boolean removeQueuedTask(Runnable task) {
+        try {
+            return taskQueue.remove(task);
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parks the calling thread until {@code task} could be added to the task queue or {@code timeoutNanos} elapsed.
+     * The event loop wakes the waiting threads up whenever it drained the task queue to half of its capacity.
+     *
+     * @param timeoutNanos the maximum time to wait, or {@code 0} to wait without a deadline.
+     * @return {@code true} if the task was added, {@code false} if the timeout elapsed.
+     * @throws RejectedExecutionException if the executor was shut down in the meantime.
+     */
+    final boolean parkUntilOffered(Runnable task, long timeoutNanos) throws InterruptedException {
+        assert !inEventLoop();
+        final long deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+        capacityLock.lockInterruptibly();
+        try {
+            capacityWaiters++;
+            try {
+                for (;;) {
+                    if (offerTask(task)) {
+                        return true;
+                    }
+                    // Make sure the event loop is running so it drains its task queue.
+                    wakeup(false);
+                    if (deadline == 0) {
+                        capacityAvailable.await();
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        capacityAvailable.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                capacityWaiters--;
+            }
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    private void signalCapacityWaitersIfDrained() {
+        if (capacityWaiters != 0 && taskQueue.size() <= maxPendingTasks >>> 1) {
+            signalCapacityWaiters();
+        }
+    }
+
+    private void signalCapacityWaiters() {
+        capacityLock.lock();
+        try {
+            capacityAvailable.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
     /**
      * @see Queue#remove(Object)
      */
     protected boolean removeTask(Runnable task) {
-        return taskQueue.remove(ObjectUtil.checkNotNull(task, "task"));
+        if (taskQueue.remove(ObjectUtil.checkNotNull(task, "task"))) {
+            return true;
+        }
+        // The task may be queued in the wrapper which samples its latency.
+        for (Runnable queued: taskQueue) {
+            if (queued != task && EventExecutorMetrics.unwrap(queued) == task) {
+                return taskQueue.remove(queued);
+            }
+        }
+        return false;
     }
 
     /**
@@ -369,6 +607,7 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         boolean fetchedAll;
         boolean ranAtLeastOne = false;
 
+        metrics.recordQueueDepth(taskQueue.size());
         do {
             fetchedAll = fetchFromScheduledTaskQueue();
             if (runAllTasksFrom(taskQueue)) {
@@ -395,6 +634,7 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         assert inEventLoop();
         boolean ranAtLeastOneTask;
         int drainAttempt = 0;
+        metrics.recordQueueDepth(taskQueue.size());
         do {
             // We must run the taskQueue tasks first, because the scheduled tasks from outside the EventLoop are queued
             // here because the taskQueue is thread safe and the scheduledTaskQueue is not thread safe.
@@ -421,10 +661,14 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         if (task == null) {
             return false;
         }
+        int executed = 0;
         for (;;) {
             safeExecute(task);
+            executed++;
+            signalCapacityWaitersIfDrained();
             task = pollTaskFrom(taskQueue);
             if (task == null) {
+                metrics.tasksExecuted(executed);
                 return true;
             }
         }
@@ -441,12 +685,17 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
             return false;
         }
         int remaining = Math.min(maxPendingTasks, taskQueue.size());
+        int executed = 1;
         safeExecute(task);
         // Use taskQueue.poll() directly rather than pollTaskFrom() since the latter may
         // silently consume more than one item from the queue (skips over WAKEUP_TASK instances)
         while (remaining-- > 0 && (task = taskQueue.poll()) != null) {
             safeExecute(task);
+            executed++;
+            signalCapacityWaitersIfDrained();
         }
+        signalCapacityWaitersIfDrained();
+        metrics.tasksExecuted(executed);
         return true;
     }
 
@@ -455,6 +704,7 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      * the tasks in the task queue and returns if it ran longer than {@code timeoutNanos}.
      */
     protected boolean runAllTasks(long timeoutNanos) {
+        metrics.recordQueueDepth(taskQueue.size());
         fetchFromScheduledTaskQueue();
         Runnable task = pollTask();
         if (task == null) {
@@ -485,6 +735,7 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
             }
         }
 
+        metrics.tasksExecuted((int) runTasks);
         afterRunningAllTasks();
         this.lastExecutionTime = lastExecutionTime;
         return true;
@@ -501,11 +752,12 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      */
     protected long delayNanos(long currentTimeNanos) {
         ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
-            return SCHEDULE_PURGE_INTERVAL;
+        long delayNanos = scheduledTask == null ? SCHEDULE_PURGE_INTERVAL : scheduledTask.delayNanos(currentTimeNanos);
+        long wheelDeadlineNanos = timerWheel == null ? -1 : timerWheel.nextDeadlineNanos();
+        if (wheelDeadlineNanos != -1) {
+            delayNanos = Math.min(delayNanos, Math.max(0, wheelDeadlineNanos - nanoTime()));
         }
-
-        return scheduledTask.delayNanos(currentTimeNanos);
+        return delayNanos;
     }
 
     /**
@@ -514,11 +766,28 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
      */
     @UnstableApi
     protected long deadlineNanos() {
-        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
-        if (scheduledTask == null) {
+        long deadlineNanos = nextTimerDeadlineNanos();
+        if (deadlineNanos == -1) {
             return nanoTime() + SCHEDULE_PURGE_INTERVAL;
         }
-        return scheduledTask.deadlineNanos();
+        return deadlineNanos;
+    }
+
+    /**
+     * Returns the deadline (relative to {@link #nanoTime()}) of the next scheduled task, or {@code -1} if there is
+     * none. Unlike {@link #nextScheduledTaskDeadlineNanos()} this also takes the tasks on the timer wheel into account
+     * and so must be used to compute how long the executor thread may block.
+     */
+    @UnstableApi
+    protected final long nextTimerDeadlineNanos() {
+        long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        if (timerWheel != null) {
+            long wheelDeadlineNanos = timerWheel.nextDeadlineNanos();
+            if (wheelDeadlineNanos != -1 && (deadlineNanos == -1 || wheelDeadlineNanos < deadlineNanos)) {
+                deadlineNanos = wheelDeadlineNanos;
+            }
+        }
+        return deadlineNanos;
     }
 
     /**
@@ -751,6 +1020,14 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         }
 
         cancelScheduledTasks();
+        if (timerWheel != null) {
+            timerWheel.cancelAll();
+        }
+        if (sleepingTasks != null && !sleepingTasks.isEmpty()) {
+            for (SleepingScheduledFutureTask<?> task: sleepingTasks) {
+                task.cancel(false);
+            }
+        }
 
         if (gracefulShutdownStartTime == 0) {
             gracefulShutdownStartTime = ScheduledFutureTask.nanoTime();
@@ -811,9 +1088,90 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
     @Override
     public void execute(Runnable task) {
         ObjectUtil.checkNotNull(task, "task");
+        if (stealableTasks != null && task instanceof StealableTask) {
+            executeStealable(task);
+            return;
+        }
         execute(task, !(task instanceof LazyRunnable) && wakesUpForTask(task));
     }
 
+    private void executeStealable(Runnable task) {
+        stealableTasks.offerLast(task);
+        stealableTaskCount.incrementAndGet();
+        try {
+            execute(stealableTaskRunner, wakesUpForTask(task));
+        } catch (RejectedExecutionException e) {
+            if (stealableTasks.removeLastOccurrence(task)) {
+                stealableTaskCount.decrementAndGet();
+                throw e;
+            }
+            // A sibling took the task already, so it was executed after all.
+        }
+    }
+
+    private Runnable pollStealableTask(boolean steal) {
+        Runnable task = steal ? stealableTasks.pollLast() : stealableTasks.pollFirst();
+        if (task != null) {
+            stealableTaskCount.decrementAndGet();
+        }
+        return task;
+    }
+
+    /**
+     * Takes a {@link StealableTask} from the sibling in the same {@link VirtualThreadEventExecutorGroup} which has the
+     * most stealable tasks queued. Only the newest task is taken, the owner keeps running its tasks from the oldest
+     * one.
+     *
+     * @return the stolen task, or {@code null} if work stealing is disabled or no sibling is busy enough.
+     */
+    protected final Runnable stealTask() {
+        if (stealableTasks == null || !(parent() instanceof VirtualThreadEventExecutorGroup)) {
+            return null;
+        }
+        VirtualThreadEventExecutor victim = null;
+        int victimBacklog = STEAL_THRESHOLD - 1;
+        for (EventExecutor e: ((VirtualThreadEventExecutorGroup) parent()).children()) {
+            if (e != this && e instanceof VirtualThreadEventExecutor) {
+                VirtualThreadEventExecutor sibling = (VirtualThreadEventExecutor) e;
+                int backlog = sibling.stealableTaskCount.get();
+                if (backlog > victimBacklog) {
+                    victim = sibling;
+                    victimBacklog = backlog;
+                }
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        Runnable task = victim.pollStealableTask(true);
+        if (task != null) {
+            metrics.taskStolen();
+        }
+        return task;
+    }
+
+    /**
+     * Runs up to {@value #MAX_STOLEN_TASKS_PER_RUN} tasks which were stolen via {@link #stealTask()}. Event loops
+     * which do not block in {@link #takeTask()} call this before they would block otherwise.
+     *
+     * @return {@code true} if at least one task was run.
+     */
+    protected final boolean runStolenTasks() {
+        assert inEventLoop();
+        int executed = 0;
+        Runnable task;
+        while (executed < MAX_STOLEN_TASKS_PER_RUN && (task = stealTask()) != null) {
+            safeExecute(task);
+            executed++;
+        }
+        if (executed == 0) {
+            return false;
+        }
+        metrics.tasksExecuted(executed);
+        lastExecutionTime = ScheduledFutureTask.nanoTime();
+        return true;
+    }
+
     @Override
     public void lazyExecute(Runnable task) {
         execute(ObjectUtil.checkNotNull(task, "task"), false);
@@ -821,13 +1179,15 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
 
     private void execute(Runnable task, boolean immediate) {
         boolean inEventLoop = inEventLoop();
-        addTask(task);
+        // The stealable task runner is recognized by its identity, it must not be wrapped.
+        final Runnable queued = task == stealableTaskRunner ? task : metrics.sampleLatency(task);
+        addTask(queued);
         if (!inEventLoop) {
             startThread();
             if (isShutdown()) {
                 boolean reject = false;
                 try {
-                    if (removeTask(task)) {
+                    if (taskQueue.remove(queued)) {
                         reject = true;
                     }
                 } catch (UnsupportedOperationException e) {
@@ -846,6 +1206,269 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
         }
     }
 
+    /**
+     * @see #executeBatch(Collection)
+     */
+    public void executeBatch(Runnable... tasks) {
+        executeBatch(Arrays.asList(ObjectUtil.checkNotNull(tasks, "tasks")));
+    }
+
+    /**
+     * Adds all given tasks to the task queue with a single state check and at most one wakeup, which is cheaper
+     * than calling {@link #execute(Runnable)} for each of them. If the task queue is a
+     * {@link ParkingMpscBlockingQueue} or a {@link MessagePassingQueue} the tasks are added in bulk.
+     * {@link StealableTask}s are routed like in {@link #execute(Runnable)}, they are submitted one by one after the
+     * other tasks.
+     * <p>
+     * If the task queue can not take all tasks the remaining ones are passed one by one to the
+     * {@link LoomRejectedExecutionHandler}, just as if they were submitted with {@link #execute(Runnable)}. Once the
+     * handler rejects a task the remaining ones are not submitted and a {@link RejectedExecutionException} is thrown
+     * which tells how many tasks were accepted. The accepted tasks are the leading ones in the iteration order of
+     * {@code tasks}, with the {@link StealableTask}s moved to the end, and they are run.
+     *
+     * @throws RejectedExecutionException if a task was rejected.
+     */
+    public void executeBatch(Collection<? extends Runnable> tasks) {
+        ObjectUtil.checkNotNull(tasks, "tasks");
+        final Runnable[] batch = tasks.toArray(new Runnable[0]);
+        if (batch.length == 0) {
+            return;
+        }
+        boolean immediate = false;
+        int queued = 0;
+        for (int i = 0; i < batch.length; i++) {
+            Runnable task = ObjectUtil.checkNotNull(batch[i], "task");
+            if (stealableTasks != null && task instanceof StealableTask) {
+                // Submitted by executeStealable(...) below, keep them behind the other tasks.
+                continue;
+            }
+            immediate |= !(task instanceof LazyRunnable) && wakesUpForTask(task);
+            batch[i] = batch[queued];
+            batch[queued++] = metrics.sampleLatency(task);
+        }
+
+        boolean inEventLoop = inEventLoop();
+        if (isShutdown()) {
+            reject();
+        }
+        final Runnable[] queuedTasks = queued == batch.length ? batch : Arrays.copyOf(batch, queued);
+        int accepted = offerTasks(queuedTasks);
+        RejectedExecutionException rejected = null;
+        try {
+            while (accepted < queued) {
+                if (!offerTask(queuedTasks[accepted])) {
+                    reject(queuedTasks[accepted]);
+                }
+                accepted++;
+            }
+        } catch (RejectedExecutionException e) {
+            rejected = e;
+        }
+        if (!inEventLoop && accepted > 0) {
+            startThread();
+            if (isShutdown()) {
+                boolean reject = false;
+                try {
+                    for (int i = 0; i < accepted; i++) {
+                        reject |= taskQueue.remove(queuedTasks[i]);
+                    }
+                } catch (UnsupportedOperationException e) {
+                    // See execute(Runnable, boolean)
+                }
+                if (reject) {
+                    reject();
+                }
+            }
+        }
+
+        if (!addTaskWakesUp && immediate && accepted > 0) {
+            wakeup(inEventLoop);
+        }
+
+        if (rejected == null) {
+            // The order of the batch was rearranged in place, so the stealable tasks are at its end.
+            for (int i = queued; i < batch.length && rejected == null; i++) {
+                try {
+                    executeStealable(batch[i]);
+                    accepted++;
+                } catch (RejectedExecutionException e) {
+                    rejected = e;
+                }
+            }
+        }
+        if (rejected != null) {
+            if (accepted == 0) {
+                throw rejected;
+            }
+            throw new RejectedExecutionException("Only " + accepted + " of " + batch.length +
+                    " tasks were accepted", rejected);
+        }
+    }
+
+    private int offerTasks(final Runnable[] batch) {
+        if (taskQueue instanceof ParkingMpscBlockingQueue) {
+            return ((ParkingMpscBlockingQueue<Runnable>) taskQueue).offerAll(batch);
+        }
+        if (taskQueue instanceof MessagePassingQueue) {
+            @SuppressWarnings("unchecked")
+            MessagePassingQueue<Runnable> queue = (MessagePassingQueue<Runnable>) taskQueue;
+            BatchSupplier supplier = new BatchSupplier(batch);
+            int offered = 0;
+            while (offered < batch.length) {
+                // fill(...) may add less than requested at chunk boundaries, so retry until it adds nothing.
+                int filled = queue.fill(supplier, batch.length - offered);
+                if (filled <= 0) {
+                    break;
+                }
+                offered += filled;
+            }
+            return offered;
+        }
+        int offered = 0;
+        while (offered < batch.length && taskQueue.offer(batch[offered])) {
+            offered++;
+        }
+        return offered;
+    }
+
+    private static final class BatchSupplier implements MessagePassingQueue.Supplier<Runnable> {
+        private final Runnable[] batch;
+        private int index;
+
+        BatchSupplier(Runnable[] batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public Runnable get() {
+            return batch[index++];
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (timerWheel == null && sleepingTasks == null) {
+            return super.schedule(command, delay, unit);
+        }
+        ObjectUtil.checkNotNull(command, "command");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (delay < 0) {
+            delay = 0;
+        }
+        long deadlineNanos = timerDeadlineNanos(unit.toNanos(delay));
+        if (sleepingTasks != null) {
+            return scheduleSleeping(new SleepingScheduledFutureTask<Void>(this, command, deadlineNanos, 0));
+        }
+        return scheduleOnTimerWheel(new WheelScheduledFutureTask<Void>(this, command, deadlineNanos, 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (timerWheel == null && sleepingTasks == null) {
+            return super.schedule(callable, delay, unit);
+        }
+        ObjectUtil.checkNotNull(callable, "callable");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (delay < 0) {
+            delay = 0;
+        }
+        long deadlineNanos = timerDeadlineNanos(unit.toNanos(delay));
+        if (sleepingTasks != null) {
+            return scheduleSleeping(new SleepingScheduledFutureTask<V>(this, callable, deadlineNanos));
+        }
+        return scheduleOnTimerWheel(new WheelScheduledFutureTask<V>(this, callable, deadlineNanos));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (timerWheel == null && sleepingTasks == null) {
+            return super.scheduleAtFixedRate(command, initialDelay, period, unit);
+        }
+        ObjectUtil.checkNotNull(command, "command");
+        ObjectUtil.checkNotNull(unit, "unit");
+        ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+        ObjectUtil.checkPositive(period, "period");
+        long deadlineNanos = timerDeadlineNanos(unit.toNanos(initialDelay));
+        if (sleepingTasks != null) {
+            return scheduleSleeping(new SleepingScheduledFutureTask<Void>(
+                    this, command, deadlineNanos, unit.toNanos(period)));
+        }
+        return scheduleOnTimerWheel(new WheelScheduledFutureTask<Void>(
+                this, command, deadlineNanos, unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (timerWheel == null && sleepingTasks == null) {
+            return super.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+        ObjectUtil.checkNotNull(command, "command");
+        ObjectUtil.checkNotNull(unit, "unit");
+        ObjectUtil.checkPositiveOrZero(initialDelay, "initialDelay");
+        ObjectUtil.checkPositive(delay, "delay");
+        long deadlineNanos = timerDeadlineNanos(unit.toNanos(initialDelay));
+        if (sleepingTasks != null) {
+            return scheduleSleeping(new SleepingScheduledFutureTask<Void>(
+                    this, command, deadlineNanos, -unit.toNanos(delay)));
+        }
+        return scheduleOnTimerWheel(new WheelScheduledFutureTask<Void>(
+                this, command, deadlineNanos, -unit.toNanos(delay)));
+    }
+
+    private static long timerDeadlineNanos(long delayNanos) {
+        long deadlineNanos = ScheduledFutureTask.nanoTime() + delayNanos;
+        // Guard against overflow
+        return deadlineNanos < 0 ? Long.MAX_VALUE : deadlineNanos;
+    }
+
+    private <V> ScheduledFuture<V> scheduleOnTimerWheel(final WheelScheduledFutureTask<V> task) {
+        if (inEventLoop()) {
+            timerWheel.add(task);
+        } else {
+            // The task adds itself to the wheel once it runs on the event loop, see WheelScheduledFutureTask.run().
+            final long deadlineNanos = task.deadlineNanos();
+            if (beforeScheduledTaskSubmitted(deadlineNanos)) {
+                execute(task);
+            } else {
+                lazyExecute(task);
+                if (afterScheduledTaskSubmitted(deadlineNanos)) {
+                    execute(WAKEUP_TASK);
+                }
+            }
+        }
+        return task;
+    }
+
+    private <V> ScheduledFuture<V> scheduleSleeping(SleepingScheduledFutureTask<V> task) {
+        if (isShutdown()) {
+            reject();
+        }
+        sleepingTasks.add(task);
+        task.startSleeper();
+        return task;
+    }
+
+    final void sleepingTaskDone(SleepingScheduledFutureTask<?> task) {
+        sleepingTasks.remove(task);
+    }
+
+    final void removeFromTimerWheel(final WheelScheduledFutureTask<?> task) {
+        if (inEventLoop()) {
+            timerWheel.remove(task);
+        } else {
+            lazyExecute(new Runnable() {
+                @Override
+                public void run() {
+                    timerWheel.remove(task);
+                }
+            });
+        }
+    }
+
+    final ScheduledTaskWheel timerWheel() {
+        return timerWheel;
+    }
+
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
         throwIfInEventLoop("invokeAny");
@@ -978,6 +1601,9 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
                 if (interrupted) {
                     thread.interrupt();
                 }
+                if (EventExecutorMetrics.JMX_ENABLED) {
+                    metrics.registerMBean(thread.getName());
+                }
 
                 boolean success = false;
                 updateLastExecutionTime();
@@ -1037,8 +1663,11 @@ public abstract class VirtualThreadEventExecutor extends AbstractScheduledEventE
                             // See https://github.com/netty/netty/issues/6596.
                             FastThreadLocal.removeAll();
 
+                            metrics.unregisterMBean();
                             STATE_UPDATER.set(VirtualThreadEventExecutor.this, ST_TERMINATED);
                             threadLock.countDown();
+                            // Threads which wait for capacity will be rejected now.
+                            signalCapacityWaiters();
                             int numUserTasks = drainTasks();
                             if (numUserTasks > 0 && logger.isWarnEnabled()) {
                                 logger.warn("An event executor terminated with " +
@@ -18,10 +18,12 @@ package io.netty.util.concurrent;
 
 import static io.netty.util.internal.ObjectUtil.checkPositive;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -33,11 +35,33 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecutorGroup {
 
-	private final EventExecutor[] children;
-	private final Set<EventExecutor> readonlyChildren;
+	// The membership may change at runtime via addChild() and removeChild(). All of these fields are replaced as a
+	// whole (copy-on-write) while holding the membershipLock.
+	private volatile EventExecutor[] children;
+	private volatile Set<EventExecutor> readonlyChildren;
+	private volatile EventExecutorChooserFactory.EventExecutorChooser chooser;
+	// Children which were removed via removeChild() but did not terminate yet. They still count for the state of
+	// the group.
+	private final Set<EventExecutor> retiredChildren =
+			Collections.newSetFromMap(new ConcurrentHashMap<EventExecutor, Boolean>());
+
+	private final Object membershipLock = new Object();
+	private boolean shuttingDown;
+	private final Executor executor;
+	private final Object[] args;
+	private final EventExecutorChooserFactory chooserFactory;
+	private final AtomicInteger createdChildren = new AtomicInteger();
 	private final AtomicInteger terminatedChildren = new AtomicInteger();
 	private final Promise<?> terminationFuture = new DefaultPromise(GlobalEventExecutor.INSTANCE);
-	private final EventExecutorChooserFactory.EventExecutorChooser chooser;
+	private final FutureListener<Object> terminationListener = new FutureListener<Object>() {
+		@Override
+		public void operationComplete(Future<Object> future) throws Exception {
+			// Retired children are counted as well, so compare against all children that were ever created.
+			if (terminatedChildren.incrementAndGet() == createdChildren.get()) {
+				terminationFuture.setSuccess(null);
+			}
+		}
+	};
 
 	/**
 	 * Create a new instance.
@@ -84,8 +108,11 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 		if (executor == null) {
 			executor = new ThreadPerTaskExecutor(newDefaultThreadFactory());
 		}
+		this.executor = executor;
+		this.args = args;
+		this.chooserFactory = chooserFactory;
 
-		children = new EventExecutor[nThreads];
+		EventExecutor[] children = new EventExecutor[nThreads];
 
 		for (int i = 0; i < nThreads; i++) {
 			boolean success = false;
@@ -117,24 +144,111 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 			}
 		}
 
-		chooser = chooserFactory.newChooser(children);
-
-		final FutureListener<Object> terminationListener = new FutureListener<Object>() {
-			@Override
-			public void operationComplete(Future<Object> future) throws Exception {
-				if (terminatedChildren.incrementAndGet() == children.length) {
-					terminationFuture.setSuccess(null);
-				}
-			}
-		};
-
+		createdChildren.set(children.length);
 		for (EventExecutor e : children) {
 			e.terminationFuture().addListener(terminationListener);
 		}
+		setChildren(children);
+	}
 
+	private void setChildren(EventExecutor[] children) {
 		Set<EventExecutor> childrenSet = new LinkedHashSet<EventExecutor>(children.length);
 		Collections.addAll(childrenSet, children);
-		readonlyChildren = Collections.unmodifiableSet(childrenSet);
+		this.readonlyChildren = Collections.unmodifiableSet(childrenSet);
+		this.chooser = chooserFactory.newChooser(children);
+		this.children = children;
+	}
+
+	/**
+	 * Create a new child via {@link #newChild(Executor, Object...)} and add it to the members of this group. The
+	 * {@link EventExecutorChooserFactory.EventExecutorChooser} is recreated so the new child is considered by
+	 * {@link #next()} from now on.
+	 *
+	 * @return the added child
+	 * @throws IllegalStateException if the group is shutting down or the child could not be created
+	 */
+	protected final EventExecutor addChild() {
+		synchronized (membershipLock) {
+			if (shuttingDown) {
+				throw new IllegalStateException("group is shutting down");
+			}
+			EventExecutor child;
+			try {
+				child = newChild(executor, args);
+			} catch (Exception e) {
+				throw new IllegalStateException("failed to create a child event loop", e);
+			}
+			createdChildren.incrementAndGet();
+			child.terminationFuture().addListener(terminationListener);
+
+			EventExecutor[] children = this.children;
+			EventExecutor[] newChildren = Arrays.copyOf(children, children.length + 1);
+			newChildren[children.length] = child;
+			setChildren(newChildren);
+			return child;
+		}
+	}
+
+	/**
+	 * Remove the given child from the members of this group so {@link #next()} will no longer return it. The child
+	 * is not shut down, this is up to the caller once it has been drained. Until it terminated the child is
+	 * {@linkplain #isRetired(EventExecutor) retired}: it is no longer returned by {@link #iterator()}, but it is
+	 * still shut down with the group and {@link #isShuttingDown()}, {@link #isShutdown()}, {@link #isTerminated()}
+	 * and {@link #awaitTermination(long, TimeUnit)} take it into account. The last remaining child can not be
+	 * removed.
+	 *
+	 * @return {@code true} if the child was removed
+	 */
+	protected final boolean removeChild(final EventExecutor child) {
+		synchronized (membershipLock) {
+			EventExecutor[] children = this.children;
+			if (children.length <= 1) {
+				return false;
+			}
+			EventExecutor[] newChildren = new EventExecutor[children.length - 1];
+			int j = 0;
+			for (EventExecutor e : children) {
+				if (e == child) {
+					continue;
+				}
+				if (j == newChildren.length) {
+					// Not a member of this group
+					return false;
+				}
+				newChildren[j++] = e;
+			}
+			retiredChildren.add(child);
+			setChildren(newChildren);
+			child.terminationFuture().addListener(new FutureListener<Object>() {
+				@Override
+				public void operationComplete(Future<Object> future) {
+					retiredChildren.remove(child);
+				}
+			});
+			return true;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the given child was removed via {@link #removeChild(EventExecutor)} and did not
+	 * terminate yet.
+	 */
+	protected final boolean isRetired(EventExecutor child) {
+		return retiredChildren.contains(child);
+	}
+
+	/**
+	 * Returns the current children followed by the retired ones which did not terminate yet.
+	 */
+	private EventExecutor[] allChildren() {
+		EventExecutor[] children = this.children;
+		if (retiredChildren.isEmpty()) {
+			return children;
+		}
+		EventExecutor[] retired = retiredChildren.toArray(new EventExecutor[0]);
+		EventExecutor[] all = Arrays.copyOf(children, children.length + retired.length);
+		System.arraycopy(retired, 0, all, children.length, retired.length);
+		return all;
 	}
 
 	protected ThreadFactory newDefaultThreadFactory() {
@@ -151,9 +265,17 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 		return readonlyChildren.iterator();
 	}
 
+	/**
+	 * Returns the current children. The returned array must not be modified.
+	 */
+	final EventExecutor[] children() {
+		return children;
+	}
+
 	/**
 	 * Return the number of {@link EventExecutor} this implementation uses. This
-	 * number is the maps 1:1 to the threads it use.
+	 * number is the maps 1:1 to the threads it use. The number may change over time if
+	 * children are added or removed via {@link #addChild()} and {@link #removeChild(EventExecutor)}.
 	 */
 	public final int executorCount() {
 		return children.length;
@@ -169,6 +291,11 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 
 	@Override
 	public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+		EventExecutor[] children;
+		synchronized (membershipLock) {
+			shuttingDown = true;
+			children = allChildren();
+		}
 		for (EventExecutor l : children) {
 			l.shutdownGracefully(quietPeriod, timeout, unit);
 		}
@@ -183,6 +310,11 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 	@Override
 	@Deprecated
 	public void shutdown() {
+		EventExecutor[] children;
+		synchronized (membershipLock) {
+			shuttingDown = true;
+			children = allChildren();
+		}
 		for (EventExecutor l : children) {
 			l.shutdown();
 		}
@@ -190,7 +322,7 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 
 	@Override
 	public boolean isShuttingDown() {
-		for (EventExecutor l : children) {
+		for (EventExecutor l : allChildren()) {
 			if (!l.isShuttingDown()) {
 				return false;
 			}
@@ -200,7 +332,7 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 
 	@Override
 	public boolean isShutdown() {
-		for (EventExecutor l : children) {
+		for (EventExecutor l : allChildren()) {
 			if (!l.isShutdown()) {
 				return false;
 			}
@@ -210,7 +342,7 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 
 	@Override
 	public boolean isTerminated() {
-		for (EventExecutor l : children) {
+		for (EventExecutor l : allChildren()) {
 			if (!l.isTerminated()) {
 				return false;
 			}
@@ -221,7 +353,7 @@ public abstract class VirtualThreadEventExecutorGroup extends AbstractEventExecu
 	@Override
 	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
 		long deadline = System.nanoTime() + unit.toNanos(timeout);
-		loop: for (EventExecutor l : children) {
+		loop: for (EventExecutor l : allChildren()) {
 			for (;;) {
 				long timeLeft = deadline - System.nanoTime();
 				if (timeLeft <= 0) {
@@ -140,4 +140,15 @@ public abstract class VirtualThreadEventLoop extends VirtualThreadEventExecutor
 		return -1;
 	}
 
+	/**
+	 * Returns the recent average time in nanoseconds this {@link EventLoop} spent
+	 * for processing I/O per iteration or {@code -1} if operation is not
+	 * supported. The returned value is not guaranteed to be exact accurate and
+	 * should be viewed as a best effort.
+	 */
+	@UnstableApi
+	public long ioTimeNanos() {
+		return -1;
+	}
+
 }
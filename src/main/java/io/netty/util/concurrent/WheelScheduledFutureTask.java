@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScheduledFuture} of a task which is held by the {@link ScheduledTaskWheel} of a
+ * {@link VirtualThreadEventExecutor}. This is the counterpart of {@link ScheduledFutureTask}, the wheel links its
+ * tasks directly so adding and removing them does not allocate.
+ */
+final class WheelScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFuture<V> {
+
+    // Only accessed by the ScheduledTaskWheel.
+    WheelScheduledFutureTask<?> prev;
+    WheelScheduledFutureTask<?> next;
+    int bucket = ScheduledTaskWheel.NOT_QUEUED;
+
+    private long deadlineNanos;
+    /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
+    private final long periodNanos;
+
+    WheelScheduledFutureTask(VirtualThreadEventExecutor executor, Runnable runnable, long nanoTime, long period) {
+        super(executor, runnable, null);
+        deadlineNanos = nanoTime;
+        periodNanos = period;
+    }
+
+    WheelScheduledFutureTask(VirtualThreadEventExecutor executor, Callable<V> callable, long nanoTime) {
+        super(executor, callable);
+        deadlineNanos = nanoTime;
+        periodNanos = 0;
+    }
+
+    private VirtualThreadEventExecutor scheduledExecutor() {
+        return (VirtualThreadEventExecutor) executor();
+    }
+
+    public long deadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public long delayNanos() {
+        return Math.max(0, deadlineNanos - ScheduledFutureTask.nanoTime());
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(delayNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+        if (this == o) {
+            return 0;
+        }
+        long d;
+        if (o instanceof WheelScheduledFutureTask) {
+            d = deadlineNanos - ((WheelScheduledFutureTask<?>) o).deadlineNanos;
+        } else {
+            d = getDelay(TimeUnit.NANOSECONDS) - o.getDelay(TimeUnit.NANOSECONDS);
+        }
+        return d < 0 ? -1 : d > 0 ? 1 : 0;
+    }
+
+    @Override
+    public void run() {
+        assert executor().inEventLoop();
+        try {
+            if (delayNanos() > 0L) {
+                // Submitted from outside the event loop, now add it to the wheel.
+                if (!isCancelled()) {
+                    scheduledExecutor().timerWheel().add(this);
+                }
+                return;
+            }
+            if (periodNanos == 0) {
+                if (setUncancellableInternal()) {
+                    V result = runTask();
+                    setSuccessInternal(result);
+                }
+            } else {
+                // check if is done as it may was cancelled
+                if (!isCancelled()) {
+                    runTask();
+                    if (!executor().isShutdown()) {
+                        if (periodNanos > 0) {
+                            deadlineNanos += periodNanos;
+                        } else {
+                            deadlineNanos = ScheduledFutureTask.nanoTime() - periodNanos;
+                        }
+                        if (!isCancelled()) {
+                            scheduledExecutor().timerWheel().add(this);
+                        }
+                    }
+                }
+            }
+        } catch (Throwable cause) {
+            setFailureInternal(cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param mayInterruptIfRunning this value has no effect in this implementation.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean canceled = super.cancel(mayInterruptIfRunning);
+        if (canceled) {
+            scheduledExecutor().removeFromTimerWheel(this);
+        }
+        return canceled;
+    }
+
+    boolean cancelWithoutRemove(boolean mayInterruptIfRunning) {
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    protected StringBuilder toStringBuilder() {
+        StringBuilder buf = super.toStringBuilder();
+        buf.setCharAt(buf.length() - 1, ',');
+
+        return buf.append(" deadline: ")
+                  .append(deadlineNanos)
+                  .append(", period: ")
+                  .append(periodNanos)
+                  .append(')');
+    }
+}
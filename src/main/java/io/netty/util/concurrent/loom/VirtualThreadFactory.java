@@ -1,16 +1,33 @@
 package io.netty.util.concurrent.loom;
 
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * {@link ThreadFactory} which creates virtual threads named {@code worker<n>} and counts them.
+ */
 public class VirtualThreadFactory implements ThreadFactory {
 
-	private AtomicLong forkCount = new AtomicLong();
-	public ThreadFactory factory = Thread.ofVirtual().name("worker", 0).factory();
+	private final LongAdder createdThreads = new LongAdder();
+	public final ThreadFactory factory;
+
+	public VirtualThreadFactory() {
+		this("worker");
+	}
+
+	public VirtualThreadFactory(String prefix) {
+		factory = Thread.ofVirtual().name(prefix, 0).factory();
+	}
 
 	public Thread newThread(Runnable r) {
-		System.out.format("Creating new thread %d\n", forkCount.incrementAndGet());
-		Thread t = factory.newThread(r);
-		return t;
+		createdThreads.increment();
+		return factory.newThread(r);
+	}
+
+	/**
+	 * Returns the number of threads created by this factory.
+	 */
+	public long createdThreads() {
+		return createdThreads.sum();
 	}
 }
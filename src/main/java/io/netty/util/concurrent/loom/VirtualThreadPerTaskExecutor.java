@@ -1,23 +1,211 @@
 package io.netty.util.concurrent.loom;
 
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
+/**
+ * {@link Executor} which runs every task in a new thread of the given {@link ThreadFactory}, usually a virtual
+ * thread.
+ * <p>
+ * Virtual threads are cheap to create but not free to run, so the number of concurrently running tasks can be
+ * bounded. Once the bound is reached {@link #execute(Runnable)} parks the caller until a running task completes
+ * instead of rejecting the task, which pushes the overload back to the producer. An event loop is never parked, its
+ * tasks are put into a bounded admission queue instead, which the completing tasks drain. No thread is started
+ * before its task got a permit. If the admission queue is full the task is rejected with a
+ * {@link RejectedExecutionException}. The executor keeps lock-free counters of the submitted, running, completed
+ * and rejected tasks.
+ */
 public class VirtualThreadPerTaskExecutor implements Executor {
+
+	private static final InternalLogger logger = InternalLoggerFactory.getInstance(VirtualThreadPerTaskExecutor.class);
+
 	private final ThreadFactory threadFactory;
-	private AtomicLong forkCount = new AtomicLong();
+	private final Semaphore permits;
+	private final int maxConcurrency;
+	// Tasks of event loops which wait for a permit, null without a bound.
+	private final Queue<Runnable> admissionQueue;
 
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder started = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder admissionWaits = new LongAdder();
+
+	/**
+	 * Create a new executor without a bound on the concurrently running tasks.
+	 */
 	public VirtualThreadPerTaskExecutor(ThreadFactory threadFactory) {
+		this(threadFactory, 0);
+	}
+
+	/**
+	 * Create a new executor whose admission queue holds up to {@code maxConcurrency} tasks.
+	 *
+	 * @param threadFactory  the {@link ThreadFactory} which creates the thread of each task.
+	 * @param maxConcurrency the maximum number of concurrently running tasks, or {@code 0} for no bound.
+	 */
+	public VirtualThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+		this(threadFactory, maxConcurrency, Math.max(1, maxConcurrency));
+	}
+
+	/**
+	 * Create a new executor.
+	 *
+	 * @param threadFactory     the {@link ThreadFactory} which creates the thread of each task.
+	 * @param maxConcurrency    the maximum number of concurrently running tasks, or {@code 0} for no bound.
+	 * @param maxAdmissionQueue the maximum number of tasks of event loops which wait for a running task to complete.
+	 */
+	public VirtualThreadPerTaskExecutor(ThreadFactory threadFactory, int maxConcurrency, int maxAdmissionQueue) {
 		this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+		this.maxConcurrency = ObjectUtil.checkPositiveOrZero(maxConcurrency, "maxConcurrency");
+		ObjectUtil.checkPositive(maxAdmissionQueue, "maxAdmissionQueue");
+		this.permits = maxConcurrency == 0 ? null : new Semaphore(maxConcurrency);
+		this.admissionQueue = maxConcurrency == 0 ? null : new ArrayBlockingQueue<Runnable>(maxAdmissionQueue);
 	}
 
-	
 	@Override
 	public void execute(Runnable command) {
-		System.out.format("Creating new thread %d\n", forkCount.incrementAndGet());
-		threadFactory.newThread(command).start();
+		ObjectUtil.checkNotNull(command, "command");
+		submitted.increment();
+		if (permits != null && !permits.tryAcquire()) {
+			admissionWaits.increment();
+			if (ThreadExecutorMap.currentExecutor() != null) {
+				// Parking an event loop stalls all of its channels, queue the task until a permit is released.
+				if (!admissionQueue.offer(command)) {
+					rejected.increment();
+					throw new RejectedExecutionException("All " + maxConcurrency
+							+ " permits are taken and the admission queue is full");
+				}
+				// A task may have released its permit before the command was queued.
+				drainAdmissionQueue();
+				return;
+			}
+			permits.acquireUninterruptibly();
+		}
+		start(command);
+	}
+
+	// The caller holds a permit for the command.
+	private void start(Runnable command) {
+		try {
+			threadFactory.newThread(new Task(command)).start();
+		} catch (Throwable t) {
+			failed.increment();
+			if (permits != null) {
+				permits.release();
+				drainAdmissionQueue();
+			}
+			throw t;
+		}
+	}
+
+	private void drainAdmissionQueue() {
+		while (!admissionQueue.isEmpty() && permits.tryAcquire()) {
+			Runnable next = admissionQueue.poll();
+			if (next == null) {
+				permits.release();
+				continue;
+			}
+			try {
+				start(next);
+			} catch (Throwable t) {
+				// The submitter already returned, there is no one left to throw at.
+				logger.warn("Failed to start a queued task.", t);
+			}
+		}
+	}
+
+	/**
+	 * Returns the bound of concurrently running tasks or {@code 0} if there is none.
+	 */
+	public int maxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Returns the number of tasks passed to {@link #execute(Runnable)}.
+	 */
+	public long submittedTasks() {
+		return submitted.sum();
+	}
+
+	/**
+	 * Returns the number of tasks which are currently running. The value is a best effort.
+	 */
+	public long activeTasks() {
+		return Math.max(0, started.sum() - completed.sum());
+	}
+
+	/**
+	 * Returns the number of completed tasks, including the failed ones.
+	 */
+	public long completedTasks() {
+		return completed.sum();
+	}
+
+	/**
+	 * Returns the number of tasks which threw or could not be started.
+	 */
+	public long failedTasks() {
+		return failed.sum();
+	}
+
+	/**
+	 * Returns the number of tasks which were rejected because the admission queue was full.
+	 */
+	public long rejectedTasks() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Returns how often a caller of {@link #execute(Runnable)} had to wait for a running task to complete.
+	 */
+	public long admissionWaits() {
+		return admissionWaits.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "VirtualThreadPerTaskExecutor(submitted: " + submittedTasks() + ", active: " + activeTasks()
+				+ ", completed: " + completedTasks() + ", failed: " + failedTasks() + ", admissionWaits: "
+				+ admissionWaits() + ", rejected: " + rejectedTasks() + ", maxConcurrency: " + maxConcurrency + ')';
+	}
+
+	private final class Task implements Runnable {
+		private final Runnable command;
+
+		Task(Runnable command) {
+			this.command = command;
+		}
+
+		@Override
+		public void run() {
+			started.increment();
+			boolean success = false;
+			try {
+				command.run();
+				success = true;
+			} finally {
+				if (!success) {
+					failed.increment();
+				}
+				completed.increment();
+				if (permits != null) {
+					permits.release();
+					drainAdmissionQueue();
+				}
+			}
+		}
 	}
-}
\ No newline at end of file
+}
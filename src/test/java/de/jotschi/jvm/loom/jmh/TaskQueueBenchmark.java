@@ -0,0 +1,109 @@
+package de.jotschi.jvm.loom.jmh;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.util.concurrent.DefaultVirtualThreadEventExecutor;
+import io.netty.util.concurrent.DefaultVirtualThreadFactory;
+import io.netty.util.concurrent.LoomRejectedExecutionHandlers;
+import io.netty.util.concurrent.ParkingMpscBlockingQueue;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
+
+/**
+ * Measures the cross-thread {@link DefaultVirtualThreadEventExecutor#execute(Runnable)} and
+ * {@link DefaultVirtualThreadEventExecutor#executeBatch(Runnable...)} throughput for the {@link LinkedBlockingQueue}
+ * and the {@link ParkingMpscBlockingQueue} task queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "--enable-preview" })
+public class TaskQueueBenchmark {
+
+	static final int BATCH = 1024;
+
+	@Param({ "linked", "parking" })
+	public String queue;
+
+	private DefaultVirtualThreadEventExecutor executor;
+
+	private final Runnable noop = () -> {
+	};
+
+	@State(Scope.Thread)
+	public static class Batch {
+		final Runnable[] tasks = new Runnable[BATCH];
+		CountDownLatch done;
+
+		@Setup(Level.Invocation)
+		public void setup(TaskQueueBenchmark benchmark) {
+			Arrays.fill(tasks, 0, BATCH - 1, benchmark.noop);
+			CountDownLatch done = new CountDownLatch(1);
+			tasks[BATCH - 1] = done::countDown;
+			this.done = done;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Queue<Runnable> taskQueue = "parking".equals(queue) ? new ParkingMpscBlockingQueue<>()
+				: new LinkedBlockingQueue<>();
+		executor = new DefaultVirtualThreadEventExecutor(null,
+				new ThreadPerTaskExecutor(new DefaultVirtualThreadFactory("benchmark")), taskQueue,
+				LoomRejectedExecutionHandlers.reject());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		executor.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(BATCH)
+	public void execute() throws InterruptedException {
+		for (int i = 0; i < BATCH - 1; i++) {
+			executor.execute(noop);
+		}
+		// The last task of the batch tells us that the loop caught up with this producer.
+		CountDownLatch done = new CountDownLatch(1);
+		executor.execute(done::countDown);
+		done.await();
+	}
+
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(BATCH)
+	public void executeBatch(Batch batch) throws InterruptedException {
+		executor.executeBatch(batch.tasks);
+		batch.done.await();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TaskQueueBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,124 @@
+package de.jotschi.jvm.loom.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.netty.util.concurrent.DefaultVirtualThreadEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Compares the scheduled task backends of the {@link DefaultVirtualThreadEventExecutor}: the priority queue
+ * ({@code heap}), the timer wheel ({@code wheel}) and one parked virtual thread per timer ({@code sleeping}).
+ * <ul>
+ * <li>{@link #scheduleAndCancel()} measures the cost to schedule and cancel a long-delay timer, like an idle
+ * timeout which is reset on every request.</li>
+ * <li>{@link #wakeup()} measures the time from scheduling a {@value #WAKEUP_DELAY_MICROS}µs timer until its future
+ * completes. Anything above the delay is wakeup imprecision.</li>
+ * <li>{@link #footprint(Footprint)} reports the retained heap per pending timer as {@code bytesPerTimer}.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgs = { "--enable-preview" })
+public class TimerBenchmark {
+
+	static final long WAKEUP_DELAY_MICROS = 1000;
+	static final int PENDING_TIMERS = 100_000;
+
+	@Param({ "heap", "wheel", "sleeping" })
+	public String backend;
+
+	private DefaultVirtualThreadEventExecutor executor;
+
+	private final Runnable noop = () -> {
+	};
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public double bytesPerTimer;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		// Every parameter runs in its own fork and the backend is read once when the executor class is initialized,
+		// so this must happen before the first executor is created.
+		System.setProperty("io.netty.eventexecutor.timerWheel", String.valueOf("wheel".equals(backend)));
+		System.setProperty("io.netty.eventexecutor.sleepingTimers", String.valueOf("sleeping".equals(backend)));
+		executor = new DefaultVirtualThreadEventExecutor();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		executor.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public boolean scheduleAndCancel() {
+		return executor.schedule(noop, 1, TimeUnit.HOURS).cancel(false);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Object wakeup() throws InterruptedException {
+		return executor.schedule(noop, WAKEUP_DELAY_MICROS, TimeUnit.MICROSECONDS).sync();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public void footprint(Footprint footprint) throws Exception {
+		long before = usedHeap();
+		List<ScheduledFuture<?>> timers = new ArrayList<>(PENDING_TIMERS);
+		for (int i = 0; i < PENDING_TIMERS; i++) {
+			timers.add(executor.schedule(noop, 1, TimeUnit.HOURS));
+		}
+		// Let the event loop pick up the timers, and the sleepers park.
+		executor.submit(noop).sync();
+		Thread.sleep(500);
+		long after = usedHeap();
+		footprint.bytesPerTimer = (double) (after - before) / PENDING_TIMERS;
+		for (ScheduledFuture<?> timer : timers) {
+			timer.cancel(false);
+		}
+		executor.submit(noop).sync();
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TimerBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,130 @@
+package de.jotschi.jvm.loom.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.nio.LoomNioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.BlockingHttpServerHandler;
+import io.netty.handler.codec.http.BlockingHttpService;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.util.concurrent.loom.VirtualThreadFactory;
+
+/**
+ * Runs a blocking service behind a {@link BlockingHttpServerHandler} on a single event loop.
+ */
+public class BlockingHttpServerHandlerTest {
+
+  @Test
+  public void testPipelinedRequestsOnBlockingService() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingHttpService service = request -> {
+      if ("/slow".equals(request.uri())) {
+        // Blocks the virtual thread of the connection, but neither the event loop nor other connections
+        release.await(5, TimeUnit.SECONDS);
+      } else if ("/release".equals(request.uri())) {
+        release.countDown();
+      }
+      String body = request.uri() + ":" + Thread.currentThread().isVirtual();
+      return new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.OK,
+        Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+    };
+
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(1, new VirtualThreadFactory());
+    try {
+      Channel server = new ServerBootstrap()
+        .group(group)
+        .channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel ch) {
+            ChannelPipeline p = ch.pipeline();
+            p.addLast(new HttpServerCodec());
+            p.addLast(new HttpObjectAggregator(64 * 1024));
+            p.addLast(new BlockingHttpServerHandler(service));
+          }
+        })
+        .bind(0).sync().channel();
+      int port = ((InetSocketAddress) server.localAddress()).getPort();
+
+      try (Socket pipelined = connect(port); Socket other = connect(port)) {
+        send(pipelined, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+          "GET /fast HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        Thread.sleep(100);
+
+        send(other, "GET /release HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertEquals("/release:true", readBody(other.getInputStream()));
+
+        // The fast request must not overtake the slow one
+        assertEquals("/slow:true", readBody(pipelined.getInputStream()));
+        assertEquals("/fast:true", readBody(pipelined.getInputStream()));
+      }
+
+      try (Socket closing = connect(port)) {
+        send(closing, "GET /close HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n" +
+          "GET /dropped HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertEquals("/close:true", readBody(closing.getInputStream()));
+        assertEquals("The connection must be closed after the response", -1, closing.getInputStream().read());
+      }
+      server.close().sync();
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  private static Socket connect(int port) throws IOException {
+    Socket socket = new Socket("127.0.0.1", port);
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  private static void send(Socket socket, String requests) throws IOException {
+    socket.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+    socket.getOutputStream().flush();
+  }
+
+  private static String readBody(InputStream in) throws IOException {
+    int contentLength = -1;
+    for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+      if (line.toLowerCase().startsWith("content-length:")) {
+        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+      }
+    }
+    assertTrue(contentLength >= 0);
+    byte[] body = in.readNBytes(contentLength);
+    return new String(body, StandardCharsets.UTF_8);
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b == -1) {
+        throw new IOException("Connection closed");
+      }
+      if (b != '\r') {
+        line.write(b);
+      }
+    }
+    return line.toString(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,267 @@
+package de.jotschi.jvm.loom.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.ChannelRebalancer;
+import io.netty.channel.nio.LoomNioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.loom.VirtualThreadFactory;
+
+/**
+ * Moves live connections between the event loops of a {@link LoomNioEventLoopGroup}.
+ */
+public class ChannelMigrationTest {
+
+  @Test
+  public void testMigrateKeepsPendingReadAndWrites() throws Exception {
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(2, new VirtualThreadFactory());
+    BlockingQueue<Channel> children = new LinkedBlockingQueue<>();
+    AtomicInteger unregistered = new AtomicInteger();
+    try {
+      // Without auto read the interest in OP_READ only comes from ctx.read(), so it has to survive the migration.
+      Channel server = bind(group, children, unregistered, false);
+      try (Socket client = connect(server)) {
+        Channel child = children.poll(5, TimeUnit.SECONDS);
+        assertEcho(client, 'a');
+
+        EventLoop target = otherLoop(group, child.eventLoop());
+        ChannelFuture migration = group.migrate(child, target);
+        child.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 'c' }));
+        assertTrue(migration.await(5, TimeUnit.SECONDS));
+        assertTrue(migration.isSuccess());
+        assertSame(target, child.eventLoop());
+        assertEquals('c', client.getInputStream().read());
+
+        assertEcho(client, 'b');
+        assertEquals("The channel must stay registered", 0, unregistered.get());
+      }
+      server.close().sync();
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  @Test
+  public void testWritesFromAnotherThreadStayOrderedDuringMigration() throws Exception {
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(2, new VirtualThreadFactory());
+    BlockingQueue<Channel> children = new LinkedBlockingQueue<>();
+    int writes = 20_000;
+    try {
+      Channel server = bind(group, children, new AtomicInteger(), true);
+      try (Socket client = connect(server)) {
+        Channel child = children.poll(5, TimeUnit.SECONDS);
+        AtomicReference<Throwable> writerFailure = new AtomicReference<>();
+        Thread writer = Thread.ofPlatform().daemon().start(() -> {
+          try {
+            ChannelFuture previous = null;
+            for (int i = 0; i < writes; i++) {
+              ChannelFuture write = child.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+              if (i % 16 == 0) {
+                // Keep the task queue of the event loop from growing without bounds
+                if (previous != null) {
+                  previous.sync();
+                }
+                previous = write;
+              }
+            }
+          } catch (Throwable t) {
+            writerFailure.set(t);
+          }
+        });
+
+        int migrations = 0;
+        while (writer.isAlive() && migrations < 20) {
+          ChannelFuture migration = group.migrate(child, otherLoop(group, child.eventLoop()));
+          assertTrue(migration.await(5, TimeUnit.SECONDS));
+          if (migration.isSuccess()) {
+            migrations++;
+          }
+        }
+
+        InputStream in = client.getInputStream();
+        for (int i = 0; i < writes; i++) {
+          assertEquals("Byte " + i + " arrived out of order", i & 0xFF, in.read());
+        }
+        writer.join();
+        assertNull(writerFailure.get());
+        assertTrue(migrations > 0);
+      }
+      server.close().sync();
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  @Test
+  public void testRefusesMigrationWithHandlerTimers() throws Exception {
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(2, new VirtualThreadFactory());
+    BlockingQueue<Channel> children = new LinkedBlockingQueue<>();
+    try {
+      Channel server = bind(group, children, new AtomicInteger(), true);
+      try (Socket client = connect(server)) {
+        Channel child = children.poll(5, TimeUnit.SECONDS);
+        child.pipeline().addFirst(new IdleStateHandler(0, 0, 60));
+        EventLoop source = child.eventLoop();
+
+        ChannelFuture migration = group.migrate(child, otherLoop(group, source));
+        assertTrue(migration.await(5, TimeUnit.SECONDS));
+        assertTrue(migration.cause() instanceof IllegalStateException);
+        assertSame(source, child.eventLoop());
+        assertEcho(client, 'a');
+      }
+      server.close().sync();
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  @Test
+  public void testRebalancerMovesBusyChannels() throws Exception {
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(2, new VirtualThreadFactory());
+    BlockingQueue<Channel> children = new LinkedBlockingQueue<>();
+    List<Socket> clients = new ArrayList<>();
+    AtomicBoolean running = new AtomicBoolean(true);
+    List<Thread> pingers = new ArrayList<>();
+    ChannelRebalancer rebalancer = null;
+    try {
+      Channel server = bind(group, children, new AtomicInteger(), true);
+      List<Channel> channels = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        clients.add(connect(server));
+        channels.add(children.poll(5, TimeUnit.SECONDS));
+      }
+
+      // Pile all connections up on the first event loop
+      EventLoop hot = (EventLoop) group.iterator().next();
+      for (Channel ch : channels) {
+        assertTrue(group.migrate(ch, hot).await(5, TimeUnit.SECONDS));
+        assertSame(hot, ch.eventLoop());
+      }
+
+      for (Socket client : clients) {
+        pingers.add(Thread.ofPlatform().daemon().start(() -> {
+          try {
+            while (running.get()) {
+              assertEcho(client, 'p');
+            }
+          } catch (IOException e) {
+            // Socket closed
+          }
+        }));
+      }
+
+      rebalancer = new ChannelRebalancer(group, 100, TimeUnit.MILLISECONDS, 1.5, 16, 8);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (rebalancer.migrations() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertTrue(rebalancer.migrations() > 0);
+      int moved = 0;
+      for (Channel ch : channels) {
+        if (ch.eventLoop() != hot) {
+          moved++;
+        }
+      }
+      assertTrue(moved > 0);
+      assertTrue("Moving everything would just move the hot spot", moved < channels.size());
+      for (Thread pinger : pingers) {
+        assertTrue(pinger.isAlive());
+      }
+    } finally {
+      running.set(false);
+      if (rebalancer != null) {
+        rebalancer.stop();
+      }
+      for (Socket client : clients) {
+        client.close();
+      }
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  private static Channel bind(LoomNioEventLoopGroup group, BlockingQueue<Channel> children,
+      AtomicInteger unregistered, boolean autoRead) throws InterruptedException {
+    return new ServerBootstrap()
+      .group(group)
+      .channel(NioServerSocketChannel.class)
+      .childOption(ChannelOption.AUTO_READ, autoRead)
+      .childHandler(new ChannelInitializer<SocketChannel>() {
+        @Override
+        protected void initChannel(SocketChannel ch) {
+          ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) {
+              children.add(ctx.channel());
+              ctx.read();
+            }
+
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+              ctx.writeAndFlush(msg);
+              ctx.read();
+            }
+
+            @Override
+            public void channelUnregistered(ChannelHandlerContext ctx) {
+              unregistered.incrementAndGet();
+              ctx.fireChannelUnregistered();
+            }
+          });
+        }
+      })
+      .bind(0).sync().channel();
+  }
+
+  private static Socket connect(Channel server) throws IOException {
+    Socket socket = new Socket();
+    socket.connect(new InetSocketAddress("127.0.0.1", ((InetSocketAddress) server.localAddress()).getPort()));
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  private static EventLoop otherLoop(LoomNioEventLoopGroup group, EventLoop loop) {
+    for (EventExecutor e : group) {
+      if (e != loop) {
+        return (EventLoop) e;
+      }
+    }
+    throw new AssertionError("The group has a single event loop");
+  }
+
+  private static void assertEcho(Socket client, char c) throws IOException {
+    client.getOutputStream().write(c);
+    client.getOutputStream().flush();
+    InputStream in = client.getInputStream();
+    assertEquals(c, in.read());
+  }
+}
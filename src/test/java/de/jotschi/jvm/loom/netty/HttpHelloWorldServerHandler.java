@@ -9,6 +9,7 @@ import static io.netty.handler.codec.http.HttpHeaderValues.TEXT_PLAIN;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.StructuredExecutor;
 
@@ -44,6 +45,16 @@ import io.netty.handler.codec.http.HttpUtil;
 public class HttpHelloWorldServerHandler extends SimpleChannelInboundHandler<HttpObject> {
   private static final byte[] CONTENT = { 'H', 'e', 'l', 'l', 'o', ' ', 'W', 'o', 'r', 'l', 'd' };
 
+  public HttpHelloWorldServerHandler() {
+  }
+
+  /**
+   * Handle the requests on the virtual threads of the given executor instead of the event loop.
+   */
+  public HttpHelloWorldServerHandler(Executor offloadExecutor) {
+    super(offloadExecutor, 64);
+  }
+
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) {
     ctx.flush();
@@ -1,5 +1,10 @@
 package de.jotschi.jvm.loom.netty;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.io.IOException;
 import java.net.ProtocolFamily;
 import java.nio.channels.DatagramChannel;
@@ -7,7 +12,12 @@ import java.nio.channels.Pipe;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.spi.AbstractSelector;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -16,11 +26,20 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
+import io.netty.channel.nio.AdaptiveSelectStrategyFactory;
+import io.netty.channel.nio.CarrierPinningDetector;
+import io.netty.channel.nio.ElasticLoomNioEventLoopGroup;
 import io.netty.channel.nio.LoomNioEventLoopGroup;
+import io.netty.channel.nio.LoomPolledNioEventLoopGroup;
+import io.netty.channel.nio.LoomThreadPerChannelEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.aio.AioEventLoopGroup;
+import io.netty.channel.socket.aio.AioServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
@@ -28,8 +47,17 @@ import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
 import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.util.concurrent.CarrierAffineVirtualThreadFactory;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.DefaultVirtualThreadEventExecutor;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+import io.netty.util.concurrent.LoomRejectedExecutionHandlers;
+import io.netty.util.concurrent.PriorityLoadSheddingRejectedExecutionHandler;
+import io.netty.util.concurrent.TaskPriority;
+import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import io.netty.util.concurrent.loom.VirtualThreadFactory;
+import io.netty.util.concurrent.loom.VirtualThreadPerTaskExecutor;
 
 public class NettyHelloWorldServerTest {
 
@@ -94,6 +122,35 @@ public class NettyHelloWorldServerTest {
     startNetty(bossGroup, workerGroup, IOUringServerSocketChannel.class);
   }
 
+  @Test
+  public void testAioTransport() throws InterruptedException {
+    // Compare with #testVirtualThreads and #testIOUringLoopGroupWithVirtual
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new AioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new AioEventLoopGroup(WORKER_THREAD_COUNT, virtualThreadFactory);
+    startNetty(bossGroup, workerGroup, AioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testCarrierAffineEventLoops() throws InterruptedException {
+    // Compare with #testVirtualThreads and #testPlatformThreads, every worker loop keeps its own carrier
+    int cpus = Runtime.getRuntime().availableProcessors();
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(cpus, new CarrierAffineVirtualThreadFactory("worker"));
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testAdaptiveIoRatio() throws InterruptedException {
+    // Watch getIoRatio, getIoRatioIncreases and getIoRatioDecreases with -Dio.netty.loom.metrics.jmx=true
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    LoomNioEventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT, virtualThreadFactory);
+    workerGroup.setAdaptiveIoRatio(1, 1, TimeUnit.MILLISECONDS);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
   @Test
   public void testPlatformThreads() throws InterruptedException {
     // 268k
@@ -102,6 +159,236 @@ public class NettyHelloWorldServerTest {
     startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
   }
 
+  @Test
+  public void testThreadPerChannel() throws InterruptedException {
+    // Compare with #testPlatformThreads
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomThreadPerChannelEventLoopGroup();
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testElasticEventLoopGroup() throws InterruptedException {
+    // Grows from 8 up to 500 event loops with the load instead of picking a fixed count
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new ElasticLoomNioEventLoopGroup(8, 500, virtualThreadFactory);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testLoadAwareChooser() throws InterruptedException {
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT,
+      new ThreadPerTaskExecutor(virtualThreadFactory), LoadAwareEventExecutorChooserFactory.INSTANCE,
+      SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testAdaptiveSelectStrategy() throws InterruptedException {
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT, virtualThreadFactory,
+      SelectorProvider.provider(), AdaptiveSelectStrategyFactory.INSTANCE);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testMetricsJmx() throws InterruptedException {
+    // Inspect the io.netty.loom domain with jconsole / jmc while the server is running
+    System.setProperty("io.netty.loom.metrics.jmx", "true");
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT, virtualThreadFactory);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testPinningDetector() throws InterruptedException {
+    // Size the worker group by the carrier capacity instead of guessing and fail if it does not fit
+    CarrierPinningDetector.Config pinningConfig = new CarrierPinningDetector.Config()
+      .policy(CarrierPinningDetector.Policy.REJECT)
+      .sampleInterval(50, TimeUnit.MILLISECONDS);
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    LoomNioEventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory,
+      pinningConfig);
+    LoomNioEventLoopGroup workerGroup = new LoomNioEventLoopGroup(
+      CarrierPinningDetector.carrierCapacity() - PARENT_THREAD_COUNT, virtualThreadFactory, pinningConfig);
+    try {
+      startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+    } finally {
+      System.out.println(workerGroup.pinningDetector().report());
+    }
+  }
+
+  @Test
+  public void testSharedPoller() throws InterruptedException {
+    // The event loops do not select by themselves, so the group is not limited by the carrier capacity
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomPolledNioEventLoopGroup(2000, virtualThreadFactory, 2);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class);
+  }
+
+  @Test
+  public void testOffloadedHandler() throws InterruptedException {
+    // The blocking request handling runs on per-channel virtual threads, at most 10k at a time
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT, virtualThreadFactory);
+    Executor offloadExecutor = new VirtualThreadPerTaskExecutor(new VirtualThreadFactory("handler"), 10_000);
+    startNetty(bossGroup, workerGroup, NioServerSocketChannel.class, offloadExecutor);
+  }
+
+  @Test
+  public void testParkingRejectedExecutionHandler() throws Exception {
+    // A submitter parks while the task queue of the event loop is full and resumes once the queue was drained
+    final int maxPendingTasks = 16;
+    DefaultVirtualThreadEventExecutor executor = new DefaultVirtualThreadEventExecutor(null,
+      new VirtualThreadFactory(), maxPendingTasks, LoomRejectedExecutionHandlers.park(10, TimeUnit.SECONDS));
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch ran = new CountDownLatch(maxPendingTasks + 1);
+    try {
+      executor.execute(() -> {
+        blocking.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(blocking.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < maxPendingTasks; i++) {
+        executor.execute(ran::countDown);
+      }
+
+      Thread submitter = new VirtualThreadFactory("submitter").newThread(() -> executor.execute(ran::countDown));
+      submitter.start();
+      submitter.join(200);
+      assertTrue("The submitter must park while the task queue is full", submitter.isAlive());
+      assertEquals(maxPendingTasks + 1, ran.getCount());
+
+      release.countDown();
+      submitter.join(5000);
+      assertFalse("The submitter must resume once the task queue was drained", submitter.isAlive());
+      assertTrue(ran.await(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  @Test
+  public void testOffloadAdmissionQueueOfEventLoop() throws Exception {
+    // An event loop is never parked by a saturated offload executor, its tasks wait in the admission queue
+    VirtualThreadPerTaskExecutor offloadExecutor = new VirtualThreadPerTaskExecutor(new VirtualThreadFactory("handler"),
+      1, 1);
+    DefaultVirtualThreadEventExecutor loop = new DefaultVirtualThreadEventExecutor(null, new VirtualThreadFactory(),
+      16, LoomRejectedExecutionHandlers.reject());
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch queuedRan = new CountDownLatch(1);
+    try {
+      boolean rejected = loop.submit(() -> {
+        offloadExecutor.execute(() -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+        offloadExecutor.execute(queuedRan::countDown);
+        try {
+          offloadExecutor.execute(() -> { });
+          return false;
+        } catch (RejectedExecutionException e) {
+          return true;
+        }
+      }).get(5, TimeUnit.SECONDS);
+      assertTrue("The admission queue must be bounded", rejected);
+      assertEquals(1, offloadExecutor.rejectedTasks());
+      assertEquals(1, queuedRan.getCount());
+
+      release.countDown();
+      assertTrue(queuedRan.await(5, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      loop.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
+  @Test
+  public void testPriorityLoadShedding() throws InterruptedException {
+    // Writes and closes of the offloaded handlers push out queued application tasks when an event loop is flooded
+    ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
+    PriorityLoadSheddingRejectedExecutionHandler sheddingHandler = LoomRejectedExecutionHandlers.shedByPriority(1024);
+    EventLoopGroup bossGroup = new LoomNioEventLoopGroup(PARENT_THREAD_COUNT, virtualThreadFactory);
+    EventLoopGroup workerGroup = new LoomNioEventLoopGroup(WORKER_THREAD_COUNT,
+      new ThreadPerTaskExecutor(virtualThreadFactory), DefaultEventExecutorChooserFactory.INSTANCE,
+      SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE, sheddingHandler);
+    Executor offloadExecutor = new VirtualThreadPerTaskExecutor(new VirtualThreadFactory("handler"));
+    try {
+      startNetty(bossGroup, workerGroup, NioServerSocketChannel.class, offloadExecutor);
+    } finally {
+      for (TaskPriority priority : TaskPriority.values()) {
+        System.out.println(priority + " dropped: " + sheddingHandler.droppedTasks(priority));
+      }
+    }
+  }
+
+  @Test
+  public void testPriorityLoadSheddingOnBoundedEventLoop() throws InterruptedException {
+    // A full task queue of an event loop gives up a queued application task for a task of Netty
+    final int maxPendingTasks = 16;
+    PriorityLoadSheddingRejectedExecutionHandler sheddingHandler =
+      LoomRejectedExecutionHandlers.shedByPriority(maxPendingTasks);
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(1,
+      new ThreadPerTaskExecutor(new VirtualThreadFactory()), DefaultEventExecutorChooserFactory.INSTANCE,
+      SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE, sheddingHandler);
+    EventLoop loop = group.next();
+    CountDownLatch blocking = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger userTasksRun = new AtomicInteger();
+    CountDownLatch ioTaskRun = new CountDownLatch(1);
+    try {
+      loop.execute(() -> {
+        blocking.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      assertTrue(blocking.await(5, TimeUnit.SECONDS));
+
+      int queued = 0;
+      try {
+        while (queued <= maxPendingTasks) {
+          loop.execute(userTasksRun::incrementAndGet);
+          queued++;
+        }
+        fail("The task queue must be bounded");
+      } catch (RejectedExecutionException e) {
+        // A USER task can not shed another USER task
+      }
+      long shedBefore = sheddingHandler.droppedTasks(TaskPriority.USER);
+
+      loop.execute(TaskPriority.IO.tag(ioTaskRun::countDown));
+      assertEquals(shedBefore + 1, sheddingHandler.droppedTasks(TaskPriority.USER));
+
+      release.countDown();
+      assertTrue(ioTaskRun.await(5, TimeUnit.SECONDS));
+      loop.submit(() -> { }).sync();
+      assertEquals(queued - 1, userTasksRun.get());
+    } finally {
+      release.countDown();
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+  }
+
   @Test
   public void testCustomSelectorProvider() throws InterruptedException {
     ThreadFactory virtualThreadFactory = new VirtualThreadFactory();
@@ -147,6 +434,11 @@ public class NettyHelloWorldServerTest {
 
   public void startNetty(EventLoopGroup bossGroup, EventLoopGroup workerGroup,
     Class<? extends ServerChannel> channelClazz) throws InterruptedException {
+    startNetty(bossGroup, workerGroup, channelClazz, null);
+  }
+
+  public void startNetty(EventLoopGroup bossGroup, EventLoopGroup workerGroup,
+    Class<? extends ServerChannel> channelClazz, Executor offloadExecutor) throws InterruptedException {
     try {
       ServerBootstrap b = new ServerBootstrap();
       b.group(bossGroup, workerGroup);
@@ -160,7 +452,8 @@ public class NettyHelloWorldServerTest {
           ChannelPipeline p = ch.pipeline();
           p.addLast(new HttpServerCodec());
           p.addLast(new HttpServerExpectContinueHandler());
-          p.addLast(new HttpHelloWorldServerHandler());
+          p.addLast(offloadExecutor == null ? new HttpHelloWorldServerHandler()
+            : new HttpHelloWorldServerHandler(offloadExecutor));
         }
 
       });
@@ -0,0 +1,153 @@
+package de.jotschi.jvm.loom.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.AbstractSelector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.netty.channel.nio.LoomNioEventLoop;
+import io.netty.channel.nio.LoomNioEventLoopGroup;
+import io.netty.channel.nio.NioTask;
+import io.netty.util.concurrent.loom.VirtualThreadFactory;
+
+/**
+ * Simulates a selector which keeps returning prematurely and checks that the {@link LoomNioEventLoop} rebuilds it
+ * and moves all registered channels to the new selector.
+ */
+public class SelectorMigrationTest {
+
+  // More than one migration batch, so the keys are moved over several loop iterations
+  private static final int PIPES = 300;
+
+  @Test
+  public void testPrematureWakeupsTriggerSelectorMigration() throws Exception {
+    RecordingSelectorProvider provider = new RecordingSelectorProvider();
+    LoomNioEventLoopGroup group = new LoomNioEventLoopGroup(1, new VirtualThreadFactory(), provider);
+    LoomNioEventLoop loop = (LoomNioEventLoop) group.next();
+    Selector broken = provider.selectors.get(0);
+
+    List<Pipe> pipes = new ArrayList<>(PIPES);
+    CountDownLatch received = new CountDownLatch(PIPES);
+    NioTask<Pipe.SourceChannel> task = new NioTask<Pipe.SourceChannel>() {
+      @Override
+      public void channelReady(Pipe.SourceChannel ch, SelectionKey key) throws Exception {
+        if (ch.read(ByteBuffer.allocate(16)) > 0) {
+          received.countDown();
+        }
+      }
+
+      @Override
+      public void channelUnregistered(Pipe.SourceChannel ch, Throwable cause) {
+      }
+    };
+
+    try {
+      for (int i = 0; i < PIPES; i++) {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        loop.register(pipe.source(), SelectionKey.OP_READ, task);
+        pipes.add(pipe);
+      }
+
+      // Wake the selector up behind the back of the event loop. Every tenth wakeup comes with a task, so the
+      // premature returns never pile up in a row and only the premature return rate can trigger the rebuild.
+      Thread saboteur = Thread.ofPlatform().daemon().start(() -> {
+        int wakeups = 0;
+        while (broken.isOpen()) {
+          broken.wakeup();
+          if (++wakeups % 10 == 0) {
+            loop.execute(() -> {
+            });
+          }
+          try {
+            Thread.sleep(1);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      });
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (loop.metrics().getSelectorRebuilds() == 0 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      saboteur.interrupt();
+
+      assertEquals(1, loop.metrics().getSelectorRebuilds());
+      assertTrue(loop.metrics().getPrematureSelectorReturns() > 0);
+      assertFalse("The old selector must be closed once all keys moved", broken.isOpen());
+      assertEquals(2, provider.selectors.size());
+
+      // Every channel must be served by the new selector
+      for (Pipe pipe : pipes) {
+        pipe.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+      }
+      assertTrue(received.await(5, TimeUnit.SECONDS));
+    } finally {
+      group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+      for (Pipe pipe : pipes) {
+        pipe.sink().close();
+        pipe.source().close();
+      }
+    }
+  }
+
+  /**
+   * Opens the default selectors and remembers them.
+   */
+  private static final class RecordingSelectorProvider extends SelectorProvider {
+
+    private final SelectorProvider provider = SelectorProvider.provider();
+    final List<Selector> selectors = new CopyOnWriteArrayList<>();
+
+    @Override
+    public AbstractSelector openSelector() throws IOException {
+      AbstractSelector selector = provider.openSelector();
+      selectors.add(selector);
+      return selector;
+    }
+
+    @Override
+    public DatagramChannel openDatagramChannel() throws IOException {
+      return provider.openDatagramChannel();
+    }
+
+    @Override
+    public DatagramChannel openDatagramChannel(ProtocolFamily family) throws IOException {
+      return provider.openDatagramChannel(family);
+    }
+
+    @Override
+    public Pipe openPipe() throws IOException {
+      return provider.openPipe();
+    }
+
+    @Override
+    public ServerSocketChannel openServerSocketChannel() throws IOException {
+      return provider.openServerSocketChannel();
+    }
+
+    @Override
+    public SocketChannel openSocketChannel() throws IOException {
+      return provider.openSocketChannel();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package io.netty.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the deadline the {@link ScheduledTaskWheel} reports with tasks on more than one level. The wheel uses one
+ * nanosecond ticks, so ticks and nanoseconds are the same.
+ */
+public class ScheduledTaskWheelTest {
+
+  private final DefaultVirtualThreadEventExecutor executor = new DefaultVirtualThreadEventExecutor();
+
+  @Test
+  public void testCascadeBeforeNextLevelZeroSlot() {
+    ScheduledTaskWheel wheel = new ScheduledTaskWheel(1, 0);
+    WheelScheduledFutureTask<?> upper = task(256);
+    wheel.add(upper);
+    assertNull(wheel.poll(201));
+
+    // 255 ticks ahead, so it stays on level 0 while the other task waits for the cascade of level 1 at tick 256
+    WheelScheduledFutureTask<?> lower = task(456);
+    wheel.add(lower);
+    assertEquals(257, wheel.nextDeadlineNanos());
+
+    // Tick 256 is not expired yet, so the cascade is still ahead
+    assertNull(wheel.poll(256));
+    assertEquals(257, wheel.nextDeadlineNanos());
+    assertSame(upper, wheel.poll(257));
+    assertEquals(457, wheel.nextDeadlineNanos());
+    assertNull(wheel.poll(456));
+    assertSame(lower, wheel.poll(457));
+    assertEquals(-1, wheel.nextDeadlineNanos());
+  }
+
+  @Test
+  public void testLevelZeroSlotBeforeCascade() {
+    ScheduledTaskWheel wheel = new ScheduledTaskWheel(1, 0);
+    WheelScheduledFutureTask<?> upper = task(1000);
+    WheelScheduledFutureTask<?> lower = task(10);
+    wheel.add(upper);
+    wheel.add(lower);
+    assertEquals(11, wheel.nextDeadlineNanos());
+
+    assertSame(lower, wheel.poll(11));
+    assertEquals(769, wheel.nextDeadlineNanos());
+    assertNull(wheel.poll(769));
+    assertEquals(1001, wheel.nextDeadlineNanos());
+    assertSame(upper, wheel.poll(1001));
+  }
+
+  private WheelScheduledFutureTask<?> task(long deadlineNanos) {
+    return new WheelScheduledFutureTask<Void>(executor, () -> {
+    }, deadlineNanos, 0);
+  }
+}